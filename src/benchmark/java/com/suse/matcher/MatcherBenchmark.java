@@ -0,0 +1,228 @@
+package com.suse.matcher;
+
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonOutput;
+import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.Match;
+import com.suse.matcher.solver.MatchResult;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks every phase of the matching process in isolation.
+ *
+ * Each benchmark method measures one phase on the output of the previous phases, which is
+ * computed once per trial. Phases that modify their inputs get fresh copies before every invocation.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+public class MatcherBenchmark {
+
+    /** Local search steps of the solving benchmark, for every independent component of the problem. */
+    private static final int SOLVER_STEPS = 200;
+
+    /** Scenario input, see {@link ScenarioInputs#load(String)}. */
+    @Param({"1", "30", "47", "47x10", "generated2000"})
+    public String scenario;
+
+    /** Logging context. */
+    private LoggerContext loggerContext;
+
+    /** The matcher, only used to access intermediate phases. */
+    private final Matcher matcher = new Matcher(false);
+
+    /** Input data. */
+    private JsonInput input;
+
+    /** Facts deduced by Drools. */
+    private Collection<Object> deducedFacts;
+
+    /** Matches deduced by Drools. */
+    private List<Match> matches;
+
+    /** Conflicts between matches. */
+    private Map<Integer, List<List<Integer>>> conflictMap;
+
+    /** Potential matches, sorted. */
+    private List<PotentialMatch> sortedPotentialMatches;
+
+    /** Solved assignment, including messages. */
+    private Assignment solved;
+
+    /** Directory for output files. */
+    private Path outputDirectory;
+
+    /** Id interner of base facts. */
+    private IdInterner idInterner;
+
+    /** Base facts, fresh for every deduction. */
+    private Collection<Object> baseFacts;
+
+    /** Unsolved assignment, fresh for every solver run. */
+    private Assignment unsolved;
+
+    /**
+     * Runs all phases once.
+     *
+     * @throws IOException if the output directory cannot be created
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Trial)
+    public void setUpTrial() throws IOException {
+        loggerContext = Log4J.initialize(Optional.of(Level.WARN), Optional.empty());
+        input = ScenarioInputs.load(scenario);
+
+        IdInterner trialIdInterner = new IdInterner();
+        deducedFacts = new Drools(FactConverter.convertToFacts(input, trialIdInterner), trialIdInterner).getResult();
+        matches = matcher.getMatches(deducedFacts);
+        conflictMap = matcher.getConflictMap(matches, deducedFacts);
+        sortedPotentialMatches = deducedFacts.stream()
+            .filter(f -> f instanceof PotentialMatch)
+            .map(f -> (PotentialMatch) f)
+            .sorted()
+            .distinct()
+            .collect(Collectors.toList());
+
+        solved = solve(newUnsolvedAssignment());
+        MessageCollector.addMessages(solved);
+
+        outputDirectory = Files.createTempDirectory("subscription-matcher-benchmark");
+    }
+
+    /**
+     * Prepares inputs that are modified by benchmarked phases.
+     */
+    @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+    public void setUpInvocation() {
+        idInterner = new IdInterner();
+        baseFacts = FactConverter.convertToFacts(input, idInterner);
+        unsolved = newUnsolvedAssignment();
+    }
+
+    /**
+     * Deletes output files and closes the logging context.
+     *
+     * @throws IOException if files cannot be deleted
+     */
+    @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+    public void tearDownTrial() throws IOException {
+        try (Stream<Path> paths = Files.walk(outputDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+        loggerContext.close();
+    }
+
+    /**
+     * Converts input data to facts.
+     *
+     * @return the facts
+     */
+    @Benchmark
+    public Collection<Object> convertToFacts() {
+        return FactConverter.convertToFacts(input, new IdInterner());
+    }
+
+    /**
+     * Deduces facts with Drools.
+     *
+     * @return the deduced facts
+     */
+    @Benchmark
+    public Collection<Object> deduce() {
+        return new Drools(baseFacts, idInterner).getResult();
+    }
+
+    /**
+     * Computes conflicts between matches.
+     *
+     * @return the conflict map
+     */
+    @Benchmark
+    public Map<Integer, List<List<Integer>>> getConflictMap() {
+        return matcher.getConflictMap(matches, deducedFacts);
+    }
+
+    /**
+     * Solves the problem with a fixed number of local search steps.
+     *
+     * @return the solved assignment
+     */
+    @Benchmark
+    public Assignment solve() {
+        return solve(unsolved);
+    }
+
+    /**
+     * Computes confirmed matches of the solved assignment, shared by all output writers.
+     *
+     * @return the confirmed matches
+     */
+    @Benchmark
+    public MatchResult matchResult() {
+        return new MatchResult(solved);
+    }
+
+    /**
+     * Converts the solved assignment to output data.
+     *
+     * @return the output
+     */
+    @Benchmark
+    public JsonOutput convertToOutput() {
+        return FactConverter.convertToOutput(solved);
+    }
+
+    /**
+     * Writes output files.
+     *
+     * @throws IOException if files cannot be written
+     */
+    @Benchmark
+    public void writeOutput() throws IOException {
+        new OutputWriter(Optional.of(outputDirectory.toString()), Optional.empty()).writeOutput(solved, Optional.empty());
+    }
+
+    private Assignment newUnsolvedAssignment() {
+        List<Match> freshMatches = matches.stream()
+            .map(m -> new Match(m.id, null))
+            .collect(Collectors.toList());
+        return new Assignment(freshMatches, deducedFacts, conflictMap, sortedPotentialMatches);
+    }
+
+    private static Assignment solve(Assignment assignment) {
+        return new OptaPlanner(assignment, new SolverConfigBuilder().stepCountLimit(SOLVER_STEPS), 1, null, null).getResult();
+    }
+}
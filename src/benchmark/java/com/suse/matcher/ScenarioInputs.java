@@ -0,0 +1,140 @@
+package com.suse.matcher;
+
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonMatch;
+import com.suse.matcher.json.JsonSubscription;
+import com.suse.matcher.json.JsonSystem;
+import com.suse.matcher.json.JsonVirtualizationGroup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads benchmark inputs from test scenarios or from {@link InputGenerator}.
+ *
+ * A scenario is identified by its number, optionally followed by "x" and a number of copies
+ * (eg. "47x10"): in that case systems, virtualization groups, subscriptions and pinned matches are
+ * replicated with shifted ids, while products are shared. Copies are independent of each other,
+ * so the result is a large input with a known structure.
+ *
+ * "generated" followed by a number of systems (eg. "generated20000") identifies an input generated
+ * with default parameters and subscriptions proportional to systems.
+ */
+public class ScenarioInputs {
+
+    /** Utility to convert from/to JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    private ScenarioInputs() {
+        // Prevent instantiation
+    }
+
+    /** Prefix of generated inputs. */
+    private static final String GENERATED = "generated";
+
+    /**
+     * Loads the input of a scenario.
+     *
+     * @param scenario a scenario number, optionally followed by "x" and a number of copies, or a generated input
+     * @return the input
+     */
+    public static JsonInput load(String scenario) {
+        if (scenario.startsWith(GENERATED)) {
+            int systems = Integer.parseInt(scenario.substring(GENERATED.length()));
+            return new InputGenerator()
+                .systems(systems)
+                .subscriptions(Math.max(1, systems / 20))
+                .virtualizationGroups(Math.max(1, systems / 500))
+                .pinnedMatches(systems / 100)
+                .generate();
+        }
+
+        String[] parts = scenario.split("x");
+        String json = read(Integer.parseInt(parts[0]));
+        if (parts.length == 1) {
+            return JSON_IO.loadInput(json);
+        }
+        return replicate(json, Integer.parseInt(parts[1]));
+    }
+
+    private static String read(int scenarioNumber) {
+        String path = "/com/suse/matcher/scenarios/" + scenarioNumber + "/input.json";
+        try (InputStream stream = ScenarioInputs.class.getResourceAsStream(path)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("Scenario " + scenarioNumber + " not found");
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonInput replicate(String json, int copies) {
+        JsonInput original = JSON_IO.loadInput(json);
+
+        // ids of copy k are shifted by k times the stride, so that ranges of ids never overlap
+        long maxId = Stream.of(
+                original.getSystems().stream().map(JsonSystem::getId),
+                original.getVirtualizationGroups().stream().map(JsonVirtualizationGroup::getId),
+                original.getSubscriptions().stream().map(JsonSubscription::getId))
+            .flatMap(s -> s)
+            .mapToLong(id -> Math.abs(id))
+            .max()
+            .orElse(0L);
+        long stride = 2 * maxId + 1;
+
+        List<JsonSystem> systems = new ArrayList<>();
+        List<JsonVirtualizationGroup> groups = new ArrayList<>();
+        List<JsonSubscription> subscriptions = new ArrayList<>();
+        List<JsonMatch> pinnedMatches = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            long offset = i * stride;
+            LongUnaryOperator shift = id -> id + offset;
+            String suffix = i == 0 ? "" : "-" + i;
+            JsonInput copy = JSON_IO.loadInput(json);
+
+            for (JsonSystem system : copy.getSystems()) {
+                system.setId(shift.applyAsLong(system.getId()));
+                system.setVirtualSystemIds(shift(system.getVirtualSystemIds(), shift));
+                systems.add(system);
+            }
+            for (JsonVirtualizationGroup group : copy.getVirtualizationGroups()) {
+                group.setId(shift.applyAsLong(group.getId()));
+                group.setVirtualGuestIds(shift(group.getVirtualGuestIds(), shift));
+                groups.add(group);
+            }
+            for (JsonSubscription subscription : copy.getSubscriptions()) {
+                subscription.setId(shift.applyAsLong(subscription.getId()));
+                // keep subscriptions of different copies from being aggregated
+                if (subscription.getSccUsername() != null) {
+                    subscription.setSccUsername(subscription.getSccUsername() + suffix);
+                }
+                subscriptions.add(subscription);
+            }
+            for (JsonMatch match : copy.getPinnedMatches()) {
+                match.setSystemId(shift.applyAsLong(match.getSystemId()));
+                match.setSubscriptionId(shift.applyAsLong(match.getSubscriptionId()));
+                pinnedMatches.add(match);
+            }
+        }
+
+        return new JsonInput(original.getTimestamp(), systems, groups, original.getProducts(), subscriptions,
+                pinnedMatches);
+    }
+
+    private static Set<Long> shift(Set<Long> ids, LongUnaryOperator shift) {
+        return ids.stream()
+            .map(id -> shift.applyAsLong(id))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+}
@@ -0,0 +1,497 @@
+package com.suse.matcher;
+
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonMatch;
+import com.suse.matcher.json.JsonMessage;
+import com.suse.matcher.json.JsonOutput;
+import com.suse.matcher.json.JsonProduct;
+import com.suse.matcher.json.JsonSubscription;
+import com.suse.matcher.json.JsonSystem;
+import com.suse.matcher.json.JsonVirtualizationGroup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializes and deserializes input and output data in a compact binary format, equivalent to JSON.
+ *
+ * Documents start with a header made of the "SMB" magic bytes, a format version byte and a document kind byte
+ * ('I' for input, 'O' for output). Then:
+ * - integers are variable-length, zig-zag encoded
+ * - id sets are encoded as differences between consecutive ids
+ * - strings are stored once, then referenced by their index
+ * - collections and strings are prefixed by their length
+ * - objects are prefixed by a mask of their non-null numeric, boolean and date fields
+ *
+ * Reading a binary document gives the same data as reading the corresponding JSON document, including nulls
+ * and the order of collections.
+ */
+public class BinaryIO {
+
+    /** Magic bytes at the beginning of every document. */
+    private static final byte[] MAGIC = {'S', 'M', 'B'};
+
+    /** Current format version. */
+    private static final int VERSION = 1;
+
+    /** Document kind of inputs. */
+    private static final int INPUT = 'I';
+
+    /** Document kind of outputs. */
+    private static final int OUTPUT = 'O';
+
+    /**
+     * Writes input data.
+     *
+     * @param input the input data
+     * @param stream the stream to write to, which is flushed but not closed
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeInput(JsonInput input, OutputStream stream) throws IOException {
+        Encoder encoder = new Encoder(stream, INPUT);
+        encoder.writePresence(input.getTimestamp());
+        encoder.writeDate(input.getTimestamp());
+        encoder.writeList(input.getSystems(), s -> {
+            encoder.writePresence(s.getId(), s.getCpus(), s.getPhysical(), s.getVirtualHost());
+            encoder.writeLong(s.getId());
+            encoder.writeString(s.getName());
+            encoder.writeLong(s.getCpus());
+            encoder.writeBoolean(s.getPhysical());
+            encoder.writeBoolean(s.getVirtualHost());
+            encoder.writeIds(s.getVirtualSystemIds());
+            encoder.writeIds(s.getProductIds());
+        });
+        encoder.writeList(input.getVirtualizationGroups(), g -> {
+            encoder.writePresence(g.getId());
+            encoder.writeLong(g.getId());
+            encoder.writeString(g.getName());
+            encoder.writeString(g.getType());
+            encoder.writeIds(g.getVirtualGuestIds());
+        });
+        encoder.writeList(input.getProducts(), p -> {
+            encoder.writePresence(p.getId(), p.getFree(), p.getBase());
+            encoder.writeLong(p.getId());
+            encoder.writeString(p.getName());
+            encoder.writeString(p.getProductClass());
+            encoder.writeBoolean(p.getFree());
+            encoder.writeBoolean(p.getBase());
+        });
+        encoder.writeList(input.getSubscriptions(), encoder::writeSubscription);
+        encoder.writeList(input.getPinnedMatches(), encoder::writeMatch);
+        encoder.flush();
+    }
+
+    /**
+     * Reads input data.
+     *
+     * @param stream the stream to read from
+     * @return the input data
+     * @throws IOException if the stream cannot be read or is not a binary input document
+     */
+    public JsonInput readInput(InputStream stream) throws IOException {
+        Decoder decoder = new Decoder(stream, INPUT);
+        long presence = decoder.readPresence();
+        Date timestamp = decoder.readDate(presence, 0);
+        List<JsonSystem> systems = decoder.readList(() -> {
+            long p = decoder.readPresence();
+            return new JsonSystem(decoder.readLong(p, 0), decoder.readString(), decoder.readInteger(p, 1),
+                    decoder.readBoolean(p, 2), decoder.readBoolean(p, 3), decoder.readIds(), decoder.readIds());
+        });
+        List<JsonVirtualizationGroup> groups = decoder.readList(() -> {
+            long p = decoder.readPresence();
+            return new JsonVirtualizationGroup(decoder.readLong(p, 0), decoder.readString(), decoder.readString(),
+                    decoder.readIds());
+        });
+        List<JsonProduct> products = decoder.readList(() -> {
+            long p = decoder.readPresence();
+            return new JsonProduct(decoder.readLong(p, 0), decoder.readString(), decoder.readString(),
+                    decoder.readBoolean(p, 1), decoder.readBoolean(p, 2));
+        });
+        List<JsonSubscription> subscriptions = decoder.readList(decoder::readSubscription);
+        List<JsonMatch> pinnedMatches = decoder.readList(decoder::readMatch);
+        return new JsonInput(timestamp, systems, groups, products, subscriptions, pinnedMatches);
+    }
+
+    /**
+     * Writes output data.
+     *
+     * @param output the output data
+     * @param stream the stream to write to, which is flushed but not closed
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeOutput(JsonOutput output, OutputStream stream) throws IOException {
+        Encoder encoder = new Encoder(stream, OUTPUT);
+        encoder.writePresence(output.getTimestamp());
+        encoder.writeDate(output.getTimestamp());
+        encoder.writeList(output.getMatches(), encoder::writeMatch);
+        encoder.writeList(output.getMessages(), m -> {
+            encoder.writeString(m.getType());
+            encoder.writeMap(m.getData(), encoder::writeString);
+        });
+        encoder.writeMap(output.getSubscriptionPolicies(), id -> encoder.writeLong(id));
+        encoder.writeList(output.getSubscriptions(), encoder::writeSubscription);
+        encoder.flush();
+    }
+
+    /**
+     * Reads output data.
+     *
+     * @param stream the stream to read from
+     * @return the output data
+     * @throws IOException if the stream cannot be read or is not a binary output document
+     */
+    public JsonOutput readOutput(InputStream stream) throws IOException {
+        Decoder decoder = new Decoder(stream, OUTPUT);
+        long presence = decoder.readPresence();
+        Date timestamp = decoder.readDate(presence, 0);
+        List<JsonMatch> matches = decoder.readList(decoder::readMatch);
+        List<JsonMessage> messages = decoder.readList(() ->
+                new JsonMessage(decoder.readString(), decoder.readMap(decoder::readString)));
+        Map<Long, String> subscriptionPolicies = decoder.readMap(decoder::readLong);
+        List<JsonSubscription> subscriptions = decoder.readList(decoder::readSubscription);
+        return new JsonOutput(timestamp, matches, messages, subscriptionPolicies, subscriptions);
+    }
+
+    /**
+     * Writes a value, possibly throwing {@link IOException}.
+     *
+     * @param <T> the value type
+     */
+    @FunctionalInterface
+    private interface ValueWriter<T> {
+
+        /**
+         * Writes a value.
+         *
+         * @param value the value
+         * @throws IOException if the value cannot be written
+         */
+        void write(T value) throws IOException;
+    }
+
+    /**
+     * Reads a value, possibly throwing {@link IOException}.
+     *
+     * @param <T> the value type
+     */
+    @FunctionalInterface
+    private interface ValueReader<T> {
+
+        /**
+         * Reads a value.
+         *
+         * @return the value
+         * @throws IOException if the value cannot be read
+         */
+        T read() throws IOException;
+    }
+
+    /**
+     * Writes a binary document.
+     */
+    private static class Encoder {
+
+        /** The underlying stream. */
+        private final DataOutputStream out;
+
+        /** Indexes of strings written so far. */
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        /**
+         * Standard constructor, writes the header.
+         *
+         * @param stream the stream to write to
+         * @param kind the document kind
+         * @throws IOException if the stream cannot be written
+         */
+        Encoder(OutputStream stream, int kind) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(kind);
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        void writeVarint(long value) throws IOException {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                out.writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.writeByte((int) v);
+        }
+
+        void writeLong(long value) throws IOException {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writePresence(Object... values) throws IOException {
+            long mask = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    mask |= 1L << i;
+                }
+            }
+            writeVarint(mask);
+        }
+
+        void writeLong(Number value) throws IOException {
+            if (value != null) {
+                writeLong(value.longValue());
+            }
+        }
+
+        void writeBoolean(Boolean value) throws IOException {
+            if (value != null) {
+                out.writeBoolean(value);
+            }
+        }
+
+        void writeDate(Date value) throws IOException {
+            if (value != null) {
+                writeLong(value.getTime());
+            }
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarint(index + 2L);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(1);
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        void writeIds(Collection<Long> ids) throws IOException {
+            if (ids == null) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(ids.size() + 1L);
+            long previous = 0;
+            for (long id : ids) {
+                writeLong(id - previous);
+                previous = id;
+            }
+        }
+
+        <T> void writeList(List<T> list, ValueWriter<T> writer) throws IOException {
+            if (list == null) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(list.size() + 1L);
+            for (T element : list) {
+                writer.write(element);
+            }
+        }
+
+        <K> void writeMap(Map<K, String> map, ValueWriter<K> keyWriter) throws IOException {
+            if (map == null) {
+                writeVarint(0);
+                return;
+            }
+            writeVarint(map.size() + 1L);
+            for (Map.Entry<K, String> entry : map.entrySet()) {
+                keyWriter.write(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        void writeSubscription(JsonSubscription s) throws IOException {
+            writePresence(s.getId(), s.getQuantity(), s.getStartDate(), s.getEndDate());
+            writeLong(s.getId());
+            writeString(s.getPartNumber());
+            writeString(s.getName());
+            writeLong(s.getQuantity());
+            writeDate(s.getStartDate());
+            writeDate(s.getEndDate());
+            writeString(s.getSccUsername());
+            writeIds(s.getProductIds());
+        }
+
+        void writeMatch(JsonMatch m) throws IOException {
+            writePresence(m.getSystemId(), m.getSubscriptionId(), m.getProductId(), m.getCents());
+            writeLong(m.getSystemId());
+            writeLong(m.getSubscriptionId());
+            writeLong(m.getProductId());
+            writeLong(m.getCents());
+        }
+    }
+
+    /**
+     * Reads a binary document.
+     */
+    private static class Decoder {
+
+        /** The underlying stream. */
+        private final DataInputStream in;
+
+        /** Strings read so far. */
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * Standard constructor, reads and checks the header.
+         *
+         * @param stream the stream to read from
+         * @param kind the expected document kind
+         * @throws IOException if the stream cannot be read or the header does not match
+         */
+        Decoder(InputStream stream, int kind) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(stream));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a binary subscription-matcher document");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary format version " + version);
+            }
+            int actualKind = in.readUnsignedByte();
+            if (actualKind != kind) {
+                throw new IOException("Expected a binary " + (kind == INPUT ? "input" : "output") + " document");
+            }
+        }
+
+        long readVarint() throws IOException {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Malformed variable-length integer");
+        }
+
+        long readLong() throws IOException {
+            long v = readVarint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        long readPresence() throws IOException {
+            return readVarint();
+        }
+
+        Long readLong(long presence, int index) throws IOException {
+            return (presence & (1L << index)) != 0 ? readLong() : null;
+        }
+
+        Integer readInteger(long presence, int index) throws IOException {
+            return (presence & (1L << index)) != 0 ? (int) readLong() : null;
+        }
+
+        Boolean readBoolean(long presence, int index) throws IOException {
+            return (presence & (1L << index)) != 0 ? in.readBoolean() : null;
+        }
+
+        Date readDate(long presence, int index) throws IOException {
+            return (presence & (1L << index)) != 0 ? new Date(readLong()) : null;
+        }
+
+        String readString() throws IOException {
+            long ref = readVarint();
+            if (ref == 0) {
+                return null;
+            }
+            if (ref > 1) {
+                if (ref - 2 >= strings.size()) {
+                    throw new IOException("Malformed string reference " + ref);
+                }
+                return strings.get((int) (ref - 2));
+            }
+            byte[] bytes = new byte[readLength()];
+            in.readFully(bytes);
+            String result = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(result);
+            return result;
+        }
+
+        Set<Long> readIds() throws IOException {
+            long size = readVarint();
+            if (size == 0) {
+                return null;
+            }
+            Set<Long> result = new LinkedHashSet<>();
+            long previous = 0;
+            for (long i = 1; i < size; i++) {
+                previous += readLong();
+                result.add(previous);
+            }
+            return result;
+        }
+
+        <T> List<T> readList(ValueReader<T> reader) throws IOException {
+            long size = readVarint();
+            if (size == 0) {
+                return null;
+            }
+            List<T> result = new ArrayList<>();
+            for (long i = 1; i < size; i++) {
+                result.add(reader.read());
+            }
+            return result;
+        }
+
+        <K> Map<K, String> readMap(ValueReader<K> keyReader) throws IOException {
+            long size = readVarint();
+            if (size == 0) {
+                return null;
+            }
+            Map<K, String> result = new LinkedHashMap<>();
+            for (long i = 1; i < size; i++) {
+                K key = keyReader.read();
+                result.put(key, readString());
+            }
+            return result;
+        }
+
+        JsonSubscription readSubscription() throws IOException {
+            long p = readPresence();
+            return new JsonSubscription(readLong(p, 0), readString(), readString(), readInteger(p, 1),
+                    readDate(p, 2), readDate(p, 3), readString(), readIds());
+        }
+
+        JsonMatch readMatch() throws IOException {
+            long p = readPresence();
+            return new JsonMatch(readLong(p, 0), readLong(p, 1), readLong(p, 2), readInteger(p, 3));
+        }
+
+        private int readLength() throws IOException {
+            long length = readVarint();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Malformed length " + length);
+            }
+            return (int) length;
+        }
+    }
+}
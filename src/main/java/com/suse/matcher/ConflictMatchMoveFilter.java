@@ -7,9 +7,6 @@ import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionFi
 import org.optaplanner.core.impl.heuristic.selector.move.generic.ChangeMove;
 import org.optaplanner.core.impl.score.director.ScoreDirector;
 
-import java.util.Set;
-import java.util.stream.Collectors;
-
 /**
  * Filters ChangeMoves by only accepting those that do not lead to conflicts.
  */
@@ -26,12 +23,9 @@ public class ConflictMatchMoveFilter implements SelectionFilter<Assignment, Chan
         if (confirmed) {
             Assignment solution = director.getWorkingSolution();
             Match match = (Match) move.getPlanningEntities().iterator().next();
-            Set<Integer> conflictingIds = solution.getConflictingMatchIds(match.id)
-                .collect(Collectors.toSet());
 
             // accept this Move only if no conflicting Match has been confirmed already
-            return solution.getMatches().stream()
-                .noneMatch(m -> m.confirmed == Boolean.TRUE && conflictingIds.contains(m.id));
+            return !solution.isConflictingMatchConfirmed(match);
         }
         else {
             // leaving a Match unconfirmed is always OK
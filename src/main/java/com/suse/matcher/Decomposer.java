@@ -0,0 +1,180 @@
+package com.suse.matcher;
+
+import com.suse.matcher.facts.CentGroup;
+import com.suse.matcher.facts.InstalledProduct;
+import com.suse.matcher.facts.PenaltyGroup;
+import com.suse.matcher.facts.PinnedMatch;
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.facts.Subscription;
+import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.Match;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Splits an unsolved {@link Assignment} into independent parts and merges the solved parts back.
+ *
+ * Two {@link Match}es end up in the same part if they have {@link PotentialMatch}es with the same
+ * {@link Subscription}, the same system and product or the same {@link CentGroup}, directly or through
+ * other {@link Match}es. Score rules never relate {@link Match}es in different parts, so every part
+ * can be solved on its own and search effort scales with the size of the part.
+ */
+public class Decomposer {
+
+    private Decomposer() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Splits an unsolved {@link Assignment} into connected components.
+     *
+     * Components are returned in order of their lowest {@link Match} id. Each contains the problem
+     * facts used by score rules (see Scores.drl) that relate to its {@link Match}es. If there is only one
+     * component, the {@link Assignment} itself is returned.
+     *
+     * @param assignment the unsolved assignment
+     * @return the unsolved components
+     */
+    public static List<Assignment> split(Assignment assignment) {
+        List<PotentialMatch> potentialMatches = assignment.getSortedPotentialMatchesCache();
+
+        // join Matches sharing a subscription, a (system, product) couple or a cent group
+        Map<Integer, Integer> parents = new HashMap<>();
+        Map<Long, Integer> subscriptionGroups = new HashMap<>();
+        Map<InstalledProduct, Integer> installedProductGroups = new HashMap<>();
+        Map<Integer, Integer> centGroupGroups = new HashMap<>();
+        for (PotentialMatch match : potentialMatches) {
+            union(parents, match.groupId, subscriptionGroups.computeIfAbsent(match.subscriptionId, k -> match.groupId));
+            union(parents, match.groupId, installedProductGroups.computeIfAbsent(
+                    new InstalledProduct(match.systemId, match.productId), k -> match.groupId));
+            union(parents, match.groupId, centGroupGroups.computeIfAbsent(match.centGroupId, k -> match.groupId));
+        }
+
+        // collect Matches by component, Matches are sorted by id
+        Map<Integer, List<Match>> componentMatches = assignment.getMatches().stream()
+            .collect(Collectors.groupingBy(m -> find(parents, m.id), LinkedHashMap::new, Collectors.toList()));
+
+        if (componentMatches.size() <= 1) {
+            return List.of(assignment);
+        }
+
+        // assign an index to every component and to every problem fact key
+        Map<Integer, Integer> groupIndexes = new HashMap<>();
+        List<List<Match>> matchLists = new ArrayList<>(componentMatches.values());
+        for (int i = 0; i < matchLists.size(); i++) {
+            for (Match match : matchLists.get(i)) {
+                groupIndexes.put(match.id, i);
+            }
+        }
+
+        Map<Long, Integer> subscriptionIndexes = new HashMap<>();
+        Map<InstalledProduct, Integer> installedProductIndexes = new HashMap<>();
+        Map<Integer, Integer> centGroupIndexes = new HashMap<>();
+        Map<Long, Set<Integer>> systemIndexes = new HashMap<>();
+        for (PotentialMatch match : potentialMatches) {
+            int index = groupIndexes.get(match.groupId);
+            subscriptionIndexes.put(match.subscriptionId, index);
+            installedProductIndexes.put(new InstalledProduct(match.systemId, match.productId), index);
+            centGroupIndexes.put(match.centGroupId, index);
+            systemIndexes.computeIfAbsent(match.systemId, k -> new TreeSet<>()).add(index);
+        }
+
+        // distribute problem facts, keeping their original order
+        List<List<Object>> factLists = new ArrayList<>();
+        List<List<PotentialMatch>> potentialMatchLists = new ArrayList<>();
+        for (int i = 0; i < matchLists.size(); i++) {
+            factLists.add(new ArrayList<>());
+            potentialMatchLists.add(new ArrayList<>());
+        }
+
+        for (PotentialMatch match : potentialMatches) {
+            potentialMatchLists.get(groupIndexes.get(match.groupId)).add(match);
+        }
+
+        for (Object fact : assignment.getProblemFacts()) {
+            if (fact instanceof PotentialMatch) {
+                factLists.get(groupIndexes.get(((PotentialMatch) fact).groupId)).add(fact);
+            }
+            else if (fact instanceof CentGroup) {
+                addIfPresent(factLists, centGroupIndexes.get(((CentGroup) fact).id), fact);
+            }
+            else if (fact instanceof Subscription) {
+                addIfPresent(factLists, subscriptionIndexes.get(((Subscription) fact).id), fact);
+            }
+            else if (fact instanceof PinnedMatch) {
+                addIfPresent(factLists, subscriptionIndexes.get(((PinnedMatch) fact).subscriptionId), fact);
+            }
+            else if (fact instanceof InstalledProduct) {
+                addIfPresent(factLists, installedProductIndexes.get(fact), fact);
+            }
+            else if (fact instanceof PenaltyGroup) {
+                // a guest can have products in more than one component
+                systemIndexes.getOrDefault(((PenaltyGroup) fact).getGuestId(), Set.of())
+                    .forEach(index -> factLists.get(index).add(fact));
+            }
+        }
+
+        List<Assignment> result = new ArrayList<>();
+        for (int i = 0; i < matchLists.size(); i++) {
+            result.add(new Assignment(matchLists.get(i), factLists.get(i), assignment.getConflictMap(),
+                    potentialMatchLists.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Copies {@link Match} confirmations and scores from solved components into the original {@link Assignment}.
+     *
+     * @param assignment the original assignment, as passed to {@link #split(Assignment)}
+     * @param solvedComponents the solved components
+     */
+    public static void merge(Assignment assignment, List<Assignment> solvedComponents) {
+        Map<Integer, Match> matches = assignment.getMatches().stream()
+            .collect(Collectors.toMap(m -> m.id, m -> m));
+
+        HardSoftScore score = null;
+        for (Assignment component : solvedComponents) {
+            component.getMatches().forEach(m -> matches.get(m.id).confirmed = m.confirmed);
+            score = score == null ? component.getScore() : score.add(component.getScore());
+        }
+        assignment.setScore(score);
+    }
+
+    private static void addIfPresent(List<List<Object>> factLists, Integer index, Object fact) {
+        if (index != null) {
+            factLists.get(index).add(fact);
+        }
+    }
+
+    private static int find(Map<Integer, Integer> parents, int id) {
+        int root = id;
+        while (parents.containsKey(root)) {
+            root = parents.get(root);
+        }
+        // compress the path for later lookups
+        int current = id;
+        while (current != root) {
+            int next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    private static void union(Map<Integer, Integer> parents, int id1, int id2) {
+        int root1 = find(parents, id1);
+        int root2 = find(parents, id2);
+        if (root1 != root2) {
+            parents.put(Math.max(root1, root2), Math.min(root1, root2));
+        }
+    }
+}
@@ -4,11 +4,17 @@ import com.suse.matcher.facts.Message;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.kie.api.KieBase;
 import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
 import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message.Level;
 import org.kie.api.builder.model.KieBaseModel;
 import org.kie.api.builder.model.KieModuleModel;
 import org.kie.api.conf.EqualityBehaviorOption;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.AgendaGroupPoppedEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
 import org.kie.api.logger.KieRuntimeLogger;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.Agenda;
@@ -17,8 +23,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Facade on the Drools rule engine.
@@ -31,7 +38,6 @@ public class Drools {
 
     /** Rule groups corresponding to filenames and agenda group names. */
     private static final String[] RULE_GROUPS = {
-        "PartNumbers",
         "InputValidation",
         "InputAugmenting",
         "SubscriptionAggregation",
@@ -39,8 +45,8 @@ public class Drools {
         "Matchability",
     };
 
-    /** Map to fact ids, see generateId(). */
-    private static final Map<List<Object>, Integer> ID_MAP = new HashMap<>();
+    /** Name of the rule base containing all rule groups. */
+    private static final String KIE_BASE_NAME = "rules";
 
     /** Deduction resulting fact objects. */
     private final Collection<Object> result;
@@ -48,28 +54,24 @@ public class Drools {
     /**
      * Instantiates a Drools instance with the specified base facts.
      * @param baseFacts fact objects
+     * @param idInterner the id interner of this run, also used to convert base facts
      */
-    public Drools(Collection<Object> baseFacts) {
-        // setup engine
-        KieServices services = KieServices.Factory.get();
-        KieModuleModel module = services.newKieModuleModel();
-
-        // two facts are equal if equals() returns true (do not rely on ==)
-        KieBaseModel base = module.newKieBaseModel("rules")
-            .addPackage("com.suse.matcher.rules.drools")
-            .setEqualsBehavior(EqualityBehaviorOption.EQUALITY);
-        base.newKieSessionModel("session").setDefault(true);
-
-        // add rule files to engine
-        KieFileSystem kfs = services.newKieFileSystem();
-        for (String ruleGroup : RULE_GROUPS) {
-            kfs.write(services.getResources().newClassPathResource("com/suse/matcher/rules/drools/" + ruleGroup+ ".drl"));
-        }
-        kfs.writeKModuleXML(module.toXML());
-        services.newKieBuilder(kfs).buildAll();
+    public Drools(Collection<Object> baseFacts, IdInterner idInterner) {
+        this(baseFacts, idInterner, null);
+    }
 
-        // start a new session
-        KieSession session = services.newKieContainer(services.getRepository().getDefaultReleaseId()).newKieSession();
+    /**
+     * Instantiates a Drools instance with the specified base facts, recording the duration of every rule group,
+     * the number of firings of every rule and the number of deduced facts.
+     * @param baseFacts fact objects
+     * @param idInterner the id interner of this run, also used to convert base facts
+     * @param metrics the metrics of this run, null not to record them
+     */
+    public Drools(Collection<Object> baseFacts, IdInterner idInterner, Metrics metrics) {
+        // start a new session from the compiled rules
+        KieServices services = KieServices.Factory.get();
+        KieSession session = getKieBase().newKieSession();
+        session.setGlobal("idInterner", idInterner);
 
         // set rule ordering
         Agenda agenda = session.getAgenda();
@@ -81,6 +83,12 @@ public class Drools {
         // in turn delegates to log4j, see log4j.xml for configuration
         KieRuntimeLogger kieLogger = services.getLoggers().newConsoleLogger(session);
 
+        RuleMetricsListener ruleMetricsListener = null;
+        if (metrics != null) {
+            ruleMetricsListener = new RuleMetricsListener();
+            session.addEventListener(ruleMetricsListener);
+        }
+
         // insert base facts
         for (Object fact : baseFacts) {
             session.insert(fact);
@@ -88,12 +96,23 @@ public class Drools {
 
         // start deduction engine
         long start = System.currentTimeMillis();
+        if (ruleMetricsListener != null) {
+            ruleMetricsListener.groupStart = start;
+        }
         session.fireAllRules();
-        LOGGER.info("Deduction phase took {}ms", System.currentTimeMillis() - start);
+        long duration = System.currentTimeMillis() - start;
+        LOGGER.info("Deduction phase took {}ms", duration);
 
         // collect results
         result = new ArrayList<>(session.getObjects());
 
+        if (metrics != null) {
+            metrics.addTiming("deduction", duration);
+            ruleMetricsListener.groupTimings.forEach((group, millis) -> metrics.addTiming("deduction." + group, millis));
+            metrics.addRuleFirings(ruleMetricsListener.ruleFirings);
+            metrics.addFacts(result);
+        }
+
         // log deducted messages
         result.stream()
             .filter(o -> o instanceof Message)
@@ -109,29 +128,97 @@ public class Drools {
     }
 
     /**
-     * Returns all facts deduced by Drools.
-     * @return the deduced facts
+     * Returns the compiled rule base, building it on first use.
+     *
+     * Parsing and compiling rules is by far the most expensive part of setting up the engine, and rules do not change
+     * at runtime, so this is done only once per JVM, and compiled rules are kept on disk for later runs (see
+     * {@link KieBaseCache}). Every deduction then gets its own session.
+     *
+     * @return the rule base
      */
-    public Collection<Object> getResult() {
-        return result;
+    public static KieBase getKieBase() {
+        return KieBaseHolder.INSTANCE;
+    }
+
+    private static String getRuleResource(String ruleGroup) {
+        return "com/suse/matcher/rules/drools/" + ruleGroup + ".drl";
     }
 
     /**
-     * reset the idMap
+     * Lazily compiles the rule base the first time it is needed (initialization on demand holder idiom).
      */
-    public static void resetIdMap() {
-        ID_MAP.clear();
+    private static class KieBaseHolder {
+
+        /** The compiled rule base. */
+        private static final KieBase INSTANCE = KieBaseCache.get(KIE_BASE_NAME, Arrays.stream(RULE_GROUPS)
+                .map(Drools::getRuleResource)
+                .collect(Collectors.toList()), KieBaseHolder::buildKieBase);
+
+        private static KieBase buildKieBase() {
+            long start = System.currentTimeMillis();
+
+            // setup engine
+            KieServices services = KieServices.Factory.get();
+            KieModuleModel module = services.newKieModuleModel();
+
+            // two facts are equal if equals() returns true (do not rely on ==)
+            KieBaseModel base = module.newKieBaseModel(KIE_BASE_NAME)
+                .addPackage("com.suse.matcher.rules.drools")
+                .setEqualsBehavior(EqualityBehaviorOption.EQUALITY);
+            base.newKieSessionModel("session").setDefault(true);
+
+            // add rule files to engine
+            KieFileSystem kfs = services.newKieFileSystem();
+            for (String ruleGroup : RULE_GROUPS) {
+                kfs.write(services.getResources().newClassPathResource(getRuleResource(ruleGroup)));
+            }
+            kfs.writeKModuleXML(module.toXML());
+            KieBuilder builder = services.newKieBuilder(kfs).buildAll();
+            if (builder.getResults().hasMessages(Level.ERROR)) {
+                throw new IllegalStateException("Unable to compile rules: " + builder.getResults().getMessages(Level.ERROR));
+            }
+
+            KieBase result = services.newKieContainer(builder.getKieModule().getReleaseId()).getKieBase(KIE_BASE_NAME);
+            LOGGER.info("Rule compilation took {}ms", System.currentTimeMillis() - start);
+            return result;
+        }
     }
 
     /**
-     * Returns a sequential id which is unique to the specified data.
-     *
-     * Equal input data always results in the same id.
+     * Measures rule groups and counts rule firings.
      *
-     * @param objects objects to generate this id from
-     * @return a new id
+     * Rule groups are run in order, each one from the moment the previous one is popped from the agenda until it is
+     * popped in turn.
+     */
+    private static class RuleMetricsListener extends DefaultAgendaEventListener {
+
+        /** Durations in milliseconds, by rule group. */
+        private final Map<String, Long> groupTimings = new LinkedHashMap<>();
+
+        /** Number of firings, by rule name. */
+        private final Map<String, Long> ruleFirings = new HashMap<>();
+
+        /** Start of the current rule group. */
+        private long groupStart;
+
+        @Override
+        public void afterMatchFired(AfterMatchFiredEvent event) {
+            ruleFirings.merge(event.getMatch().getRule().getName(), 1L, Long::sum);
+        }
+
+        @Override
+        public void agendaGroupPopped(AgendaGroupPoppedEvent event) {
+            long now = System.currentTimeMillis();
+            groupTimings.merge(event.getAgendaGroup().getName(), now - groupStart, Long::sum);
+            groupStart = now;
+        }
+    }
+
+    /**
+     * Returns all facts deduced by Drools.
+     * @return the deduced facts
      */
-    public static int generateId(Object... objects) {
-        return ID_MAP.computeIfAbsent(Arrays.asList(objects), k -> ID_MAP.size());
+    public Collection<Object> getResult() {
+        return result;
     }
 }
@@ -1,10 +1,8 @@
 package com.suse.matcher;
 
-import com.suse.matcher.facts.CentGroup;
 import com.suse.matcher.facts.HostGuest;
 import com.suse.matcher.facts.InstalledProduct;
 import com.suse.matcher.facts.Message;
-import com.suse.matcher.facts.PotentialMatch;
 import com.suse.matcher.facts.PinnedMatch;
 import com.suse.matcher.facts.Product;
 import com.suse.matcher.facts.Subscription;
@@ -21,9 +19,17 @@ import com.suse.matcher.json.JsonSubscription;
 import com.suse.matcher.json.JsonSystem;
 import com.suse.matcher.json.JsonVirtualizationGroup;
 import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.MatchResult;
 
-import org.apache.commons.lang3.builder.CompareToBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
@@ -34,6 +40,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -50,60 +57,148 @@ public class FactConverter {
      * Converts JSON objects to facts (inputs to the rule engine).
      *
      * @param input a JSON input data blob
+     * @param idInterner the id interner of this run
      * @return a collection of facts
      */
-    public static Collection<Object> convertToFacts(JsonInput input) {
+    public static Collection<Object> convertToFacts(JsonInput input, IdInterner idInterner) {
         Collection<Object> result = new LinkedList<>();
 
         result.add(new Timestamp(input.getTimestamp()));
+        input.getSystems().forEach(s -> addFacts(result, s));
+        input.getVirtualizationGroups().forEach(g -> addFacts(result, g, idInterner));
+        input.getProducts().forEach(p -> addFacts(result, p));
+        input.getSubscriptions().forEach(s -> addFacts(result, s));
+        input.getPinnedMatches().forEach(m -> addFacts(result, m));
 
-        for (JsonSystem system : input.getSystems()) {
-            result.add(new System(system.getId(), system.getName(), system.getCpus(), system.getPhysical()));
-            for (Long guestId : system.getVirtualSystemIds()) {
-                result.add(new HostGuest(system.getId(), guestId));
-            }
-            for (Long productId : system.getProductIds()) {
-                result.add(new InstalledProduct(system.getId(), productId));
+        return result;
+    }
+
+    /**
+     * Converts a JSON input document to facts (inputs to the rule engine), reading one system, product etc.
+     * at a time so that the whole document is never held in memory.
+     *
+     * Facts are the same, and in the same order, as the ones produced by
+     * {@link #convertToFacts(JsonInput, IdInterner)} on the corresponding {@link JsonInput}.
+     *
+     * @param reader a reader of the JSON input document
+     * @param idInterner the id interner of this run
+     * @return a collection of facts
+     * @throws JsonSyntaxException if the document is empty or not valid JSON
+     * @throws IOException if the document cannot be read
+     */
+    public static Collection<Object> convertToFacts(Reader reader, IdInterner idInterner) throws IOException {
+        JsonIO jsonIO = new JsonIO();
+        Date timestamp = null;
+        Collection<Object> systems = new LinkedList<>();
+        Collection<Object> groups = new LinkedList<>();
+        Collection<Object> products = new LinkedList<>();
+        Collection<Object> subscriptions = new LinkedList<>();
+        Collection<Object> pins = new LinkedList<>();
+
+        try {
+            JsonReader json = new JsonReader(reader);
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "timestamp":
+                        timestamp = jsonIO.read(json, Date.class);
+                        break;
+                    case "systems":
+                        readArray(json, jsonIO, JsonSystem.class, s -> addFacts(systems, s));
+                        break;
+                    case "virtualization_groups":
+                        readArray(json, jsonIO, JsonVirtualizationGroup.class, g -> addFacts(groups, g, idInterner));
+                        break;
+                    case "products":
+                        readArray(json, jsonIO, JsonProduct.class, p -> addFacts(products, p));
+                        break;
+                    case "subscriptions":
+                        readArray(json, jsonIO, JsonSubscription.class, s -> addFacts(subscriptions, s));
+                        break;
+                    case "pinned_matches":
+                        readArray(json, jsonIO, JsonMatch.class, m -> addFacts(pins, m));
+                        break;
+                    default:
+                        json.skipValue();
+                }
             }
+            json.endObject();
+        }
+        catch (EOFException | MalformedJsonException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
         }
 
-        for (JsonVirtualizationGroup group : input.getVirtualizationGroups()) {
-            for (Long guestId : group.getVirtualGuestIds()) {
-                result.add(new VirtualizationGroupMember(
-                        Drools.generateId(group.getType(), group.getId()),
-                        guestId));
-            }
+        Collection<Object> result = new LinkedList<>();
+        result.add(new Timestamp(timestamp));
+        result.addAll(systems);
+        result.addAll(groups);
+        result.addAll(products);
+        result.addAll(subscriptions);
+        result.addAll(pins);
+        return result;
+    }
+
+    private static <T> void readArray(JsonReader json, JsonIO jsonIO, Class<T> type, Consumer<T> consumer)
+            throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            consumer.accept(jsonIO.read(json, type));
         }
+        json.endArray();
+    }
 
-        for (JsonProduct product : input.getProducts()) {
-            result.add(new Product(
-                    product.getId(),
-                    product.getName(),
-                    product.getProductClass(),
-                    product.getFree(),
-                    product.getBase()));
+    private static void addFacts(Collection<Object> result, JsonSystem system) {
+        result.add(new System(system.getId(), system.getName(), system.getCpus(), system.getPhysical()));
+        for (Long guestId : system.getVirtualSystemIds()) {
+            result.add(new HostGuest(system.getId(), guestId));
         }
+        for (Long productId : system.getProductIds()) {
+            result.add(new InstalledProduct(system.getId(), productId));
+        }
+    }
 
-        for (JsonSubscription subscription : input.getSubscriptions()) {
-            result.add(new Subscription(
-                    subscription.getId(),
-                    subscription.getPartNumber(),
-                    subscription.getName(),
-                    subscription.getQuantity(),
-                    subscription.getStartDate(),
-                    subscription.getEndDate(),
-                    subscription.getSccUsername()
-            ));
-            for (Long productId : subscription.getProductIds()) {
-                result.add(new SubscriptionProduct(subscription.getId(), productId));
-            }
+    private static void addFacts(Collection<Object> result, JsonVirtualizationGroup group, IdInterner idInterner) {
+        for (Long guestId : group.getVirtualGuestIds()) {
+            result.add(new VirtualizationGroupMember(
+                    idInterner.id(group.getType(), group.getId()),
+                    guestId));
         }
+    }
 
-        for (JsonMatch match : input.getPinnedMatches()) {
-            result.add(new PinnedMatch(match.getSystemId(), match.getSubscriptionId()));
+    private static void addFacts(Collection<Object> result, JsonProduct product) {
+        result.add(new Product(
+                product.getId(),
+                product.getName(),
+                product.getProductClass(),
+                product.getFree(),
+                product.getBase()));
+    }
+
+    private static void addFacts(Collection<Object> result, JsonSubscription subscription) {
+        Subscription fact = new Subscription(
+                subscription.getId(),
+                subscription.getPartNumber(),
+                subscription.getName(),
+                subscription.getQuantity(),
+                subscription.getStartDate(),
+                subscription.getEndDate(),
+                subscription.getSccUsername()
+        );
+        // policy, CPU count etc. only depend on the part number
+        PartNumberCatalog.fillIn(fact);
+        result.add(fact);
+        for (Long productId : subscription.getProductIds()) {
+            result.add(new SubscriptionProduct(subscription.getId(), productId));
         }
+    }
 
-        return result;
+    private static void addFacts(Collection<Object> result, JsonMatch pinnedMatch) {
+        result.add(new PinnedMatch(pinnedMatch.getSystemId(), pinnedMatch.getSubscriptionId()));
     }
 
     /**
@@ -152,43 +247,13 @@ public class FactConverter {
      * @return matches
      */
     public static List<JsonMatch> getMatches(Assignment assignment) {
-        Set<Integer> confirmedGroupIds = assignment.getMatches().stream()
-                .filter(m -> m.confirmed)
-                .map(m -> m.id)
-                .collect(Collectors.toSet());
-
-        // map of cent group id -> cent group cents
-        Map<Number, Integer> centGroupsCents = assignment.getProblemFactStream(CentGroup.class)
-                .collect(Collectors.toMap(
-                        cg -> cg.id,
-                        cg -> cg.cents
-                ));
-
-        // how many confirmed Potential Matches share one Cent Group
-        Map<Integer, Integer> centGroupMatchesCount = assignment.getProblemFactStream(PotentialMatch.class)
-                .filter(pm -> confirmedGroupIds.contains(pm.getGroupId()))
-                .collect(Collectors.toMap(
-                        pm -> pm.centGroupId,
-                        pm -> 1,
-                        (v1, v2) -> v1 + v2
-                ));
-
-        return assignment.getProblemFactStream(PotentialMatch.class)
-            .filter(m -> confirmedGroupIds.contains(m.groupId)) // only confirmed matches
-            .map(m -> new JsonMatch(
-                m.systemId,
-                m.subscriptionId,
-                m.productId,
-                centGroupsCents.get(m.getCentGroupId()) / centGroupMatchesCount.getOrDefault(m.getCentGroupId(), 1)
-            ))
-            .sorted((a, b) -> new CompareToBuilder()
-                .append(a.getSystemId(), b.getSystemId())
-                .append(a.getProductId(), b.getProductId())
-                .append(a.getSubscriptionId(), b.getSubscriptionId())
-                .append(a.getCents(), b.getCents())
-                .toComparison()
-            )
-            .collect(Collectors.toList());
+        MatchResult result = assignment.getMatchResult();
+        List<JsonMatch> matches = new ArrayList<>(result.size());
+        for (int i = 0; i < result.size(); i++) {
+            matches.add(new JsonMatch(result.getSystemId(i), result.getSubscriptionId(i), result.getProductId(i),
+                    result.getCents(i)));
+        }
+        return matches;
     }
 
     /**
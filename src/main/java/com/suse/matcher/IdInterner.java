@@ -0,0 +1,211 @@
+package com.suse.matcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Assigns sequential ids to tuples of values, for the duration of one matching run.
+ *
+ * Equal tuples always get the same id and different tuples never do, even if they have different shapes
+ * (eg. (1, 2) and (1, 2, 3)). Ids are assigned in order of first request, starting from 0.
+ *
+ * Each tuple shape has its own open addressing hash table of primitive values, so that looking up an id
+ * does not allocate. Note that tuples with different shapes are never equal, even if their values are: in
+ * particular, (int, long) tuples are distinct from (long, long) tuples.
+ *
+ * Instances are not thread-safe and are passed to rules as the "idInterner" global.
+ */
+public class IdInterner {
+
+    /** Next id to assign. */
+    private int nextId = 0;
+
+    /** Codes of strings used in tuples. */
+    private final Map<String, Integer> stringCodes = new HashMap<>();
+
+    /** Ids of (long, long) tuples. */
+    private final Table longLongIds = new Table(2);
+
+    /** Ids of (long, long, long) tuples. */
+    private final Table longLongLongIds = new Table(3);
+
+    /** Ids of (int, long) tuples. */
+    private final Table intLongIds = new Table(2);
+
+    /** Ids of (String, long) tuples. */
+    private final Table stringLongIds = new Table(2);
+
+    /** Ids of (String, int, int) tuples. */
+    private final Table stringIntIntIds = new Table(3);
+
+    /**
+     * Returns the id of a (long, long) tuple.
+     *
+     * @param a first value
+     * @param b second value
+     * @return the id
+     */
+    public int id(long a, long b) {
+        return longLongIds.id(a, b, 0L);
+    }
+
+    /**
+     * Returns the id of a (long, long, long) tuple.
+     *
+     * @param a first value
+     * @param b second value
+     * @param c third value
+     * @return the id
+     */
+    public int id(long a, long b, long c) {
+        return longLongLongIds.id(a, b, c);
+    }
+
+    /**
+     * Returns the id of an (int, long) tuple.
+     *
+     * @param a first value
+     * @param b second value
+     * @return the id
+     */
+    public int id(int a, long b) {
+        return intLongIds.id(a, b, 0L);
+    }
+
+    /**
+     * Returns the id of a (String, long) tuple.
+     *
+     * @param a first value
+     * @param b second value
+     * @return the id
+     */
+    public int id(String a, long b) {
+        return stringLongIds.id(stringCode(a), b, 0L);
+    }
+
+    /**
+     * Returns the id of a (String, int, int) tuple.
+     *
+     * @param a first value
+     * @param b second value
+     * @param c third value
+     * @return the id
+     */
+    public int id(String a, int b, int c) {
+        return stringIntIntIds.id(stringCode(a), b, c);
+    }
+
+    /**
+     * Returns the number of assigned ids.
+     *
+     * @return the number of ids
+     */
+    public int size() {
+        return nextId;
+    }
+
+    private long stringCode(String string) {
+        return stringCodes.computeIfAbsent(string, k -> stringCodes.size());
+    }
+
+    /**
+     * Maps tuples of up to three longs to ids, with linear probing.
+     */
+    private class Table {
+
+        /** Number of values in a tuple. */
+        private final int arity;
+
+        /** Tuple values, arity slots per entry. */
+        private long[] keys;
+
+        /** Ids, -1 for empty entries. */
+        private int[] ids;
+
+        /** Number of used entries. */
+        private int size = 0;
+
+        /**
+         * Standard constructor.
+         *
+         * @param arityIn number of values in a tuple
+         */
+        Table(int arityIn) {
+            arity = arityIn;
+            allocate(64);
+        }
+
+        /**
+         * Returns the id of a tuple, assigning a new one if needed. Values beyond the arity are ignored.
+         *
+         * @param a first value
+         * @param b second value
+         * @param c third value, if arity is 3
+         * @return the id
+         */
+        int id(long a, long b, long c) {
+            int mask = ids.length - 1;
+            for (int i = hash(a, b, c) & mask; ; i = (i + 1) & mask) {
+                if (ids[i] < 0) {
+                    int id = nextId++;
+                    put(i, a, b, c, id);
+                    if (++size * 2 > ids.length) {
+                        grow();
+                    }
+                    return id;
+                }
+                int k = i * arity;
+                if (keys[k] == a && keys[k + 1] == b && (arity == 2 || keys[k + 2] == c)) {
+                    return ids[i];
+                }
+            }
+        }
+
+        private int hash(long a, long b, long c) {
+            long h = a * 0x9E3779B97F4A7C15L;
+            h = (h ^ b) * 0x9E3779B97F4A7C15L;
+            if (arity == 3) {
+                h = (h ^ c) * 0x9E3779B97F4A7C15L;
+            }
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void put(int index, long a, long b, long c, int id) {
+            int k = index * arity;
+            keys[k] = a;
+            keys[k + 1] = b;
+            if (arity == 3) {
+                keys[k + 2] = c;
+            }
+            ids[index] = id;
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity * arity];
+            ids = new int[capacity];
+            Arrays.fill(ids, -1);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            allocate(oldIds.length * 2);
+
+            int mask = ids.length - 1;
+            for (int j = 0; j < oldIds.length; j++) {
+                if (oldIds[j] >= 0) {
+                    int k = j * arity;
+                    long a = oldKeys[k];
+                    long b = oldKeys[k + 1];
+                    long c = arity == 3 ? oldKeys[k + 2] : 0L;
+                    int i = hash(a, b, c) & mask;
+                    while (ids[i] >= 0) {
+                        i = (i + 1) & mask;
+                    }
+                    put(i, a, b, c, oldIds[j]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.suse.matcher;
+
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.json.JsonOutput;
+import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.AssignmentScoreCalculator;
+import com.suse.matcher.solver.Match;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Matches of a previous output, used as a starting point for the CSP solver.
+ *
+ * Starting from previous matches keeps results stable between runs. The construction heuristic of the CSP solver
+ * only assigns the {@link Match}es that are not confirmed by previous matches, so that the initial solution is
+ * completed for data that changed since. Previous matches that no longer fit subscription quantities are not used.
+ */
+public class InitialSolution {
+
+    /** Logger instance. */
+    private static final Logger LOGGER = LogManager.getLogger(InitialSolution.class);
+
+    /** Previous matches as (system, product, subscription) ids. */
+    private final Set<List<Long>> previousMatches;
+
+    /**
+     * Standard constructor.
+     *
+     * @param previousOutput output of a previous run
+     */
+    public InitialSolution(JsonOutput previousOutput) {
+        previousMatches = previousOutput.getMatches().stream()
+            .map(m -> Arrays.asList(m.getSystemId(), m.getProductId(), m.getSubscriptionId()))
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Confirms {@link Match}es as they were in the previous output. A {@link Match} is confirmed if all of its
+     * {@link PotentialMatch}es were in the previous output, and left unassigned otherwise.
+     *
+     * As different {@link Match}es can have equal {@link PotentialMatch}es, bigger ones are confirmed first and
+     * every previous match is used by one {@link Match} at most, skipping conflicting ones.
+     *
+     * If confirmed {@link Match}es break hard constraints, eg. because subscription quantities decreased since, all
+     * {@link Match}es are left unassigned instead, so that the component is solved from scratch.
+     *
+     * @param component a part of the problem
+     * @return true if previous matches were applied, false if they break hard constraints
+     */
+    public boolean apply(Assignment component) {
+        Map<Integer, List<List<Long>>> matchKeys = component.getProblemFactStream(PotentialMatch.class)
+            .collect(Collectors.groupingBy(m -> m.groupId,
+                    Collectors.mapping(m -> Arrays.asList(m.systemId, m.productId, m.subscriptionId),
+                            Collectors.toList())));
+
+        Set<List<Long>> usedMatches = new HashSet<>();
+        component.getMatches().forEach(m -> m.confirmed = null);
+        component.getMatches().stream()
+            .sorted(Comparator.comparing((Match m) -> -matchKeys.getOrDefault(m.id, List.of()).size())
+                    .thenComparing(m -> m.id))
+            .forEach(m -> {
+                List<List<Long>> keys = matchKeys.getOrDefault(m.id, List.of());
+                if (!keys.isEmpty() && previousMatches.containsAll(keys) &&
+                        keys.stream().noneMatch(usedMatches::contains) && !component.isConflictingMatchConfirmed(m)) {
+                    m.confirmed = true;
+                    usedMatches.addAll(keys);
+                }
+            });
+
+        // unassigned Matches count as not confirmed
+        AssignmentScoreCalculator calculator = new AssignmentScoreCalculator();
+        calculator.resetWorkingSolution(component);
+        HardSoftScore score = calculator.calculateScore();
+        if (score.getHardScore() < 0) {
+            LOGGER.warn("Previous matches break hard constraints ({}), solving part of the problem from scratch",
+                    score);
+            component.getMatches().forEach(m -> m.confirmed = null);
+            return false;
+        }
+        return true;
+    }
+}
@@ -9,6 +9,9 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+
+import java.io.Reader;
 
 /**
  * Serializes and deserializes objects from and to JSON.
@@ -38,6 +41,18 @@ public class JsonIO {
         return gson.fromJson(string, new TypeToken<JsonInput>() { }.getType());
     }
 
+    /**
+     * Load input JSON from a reader.
+     *
+     * @param reader the JSON reader
+     * @return the input data
+     * @throws JsonIOException in case the reader cannot be read correctly
+     * @throws JsonSyntaxException in case JSON does not have correct syntax
+     */
+    public JsonInput loadInput(Reader reader) {
+        return gson.fromJson(reader, new TypeToken<JsonInput>() { }.getType());
+    }
+
     /**
      * Load output JSON from a string.
      *
@@ -50,6 +65,20 @@ public class JsonIO {
         return gson.fromJson(string, new TypeToken<JsonOutput>() { }.getType());
     }
 
+    /**
+     * Reads the next value from a JSON stream.
+     *
+     * @param reader the JSON stream
+     * @param type the type of the value
+     * @param <T> the type of the value
+     * @return the value
+     * @throws JsonIOException in case the stream cannot be read correctly
+     * @throws JsonSyntaxException in case JSON does not have correct syntax
+     */
+    public <T> T read(JsonReader reader, Class<T> type) {
+        return gson.fromJson(reader, type);
+    }
+
     /**
      * Converts an object to a JSON string.
      * @param o an object
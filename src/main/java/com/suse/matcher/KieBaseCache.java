@@ -0,0 +1,212 @@
+package com.suse.matcher;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.drools.core.util.DroolsStreamUtils;
+import org.kie.api.KieBase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps compiled rule bases on disk, so that rules are compiled once and not at every start of the program.
+ *
+ * Rule bases are serialized to files named after a hash of their rule files, of the classes these import and of the
+ * Drools version, so that any change to those compiles rules again. Files are kept in the directory set by the
+ * subscription-matcher.cache-dir system property, by default $XDG_CACHE_HOME/subscription-matcher or
+ * ~/.cache/subscription-matcher. Caching is disabled if the property is set to an empty string.
+ *
+ * Serialized rule bases contain code, so the directory is only used if it belongs to the current user and nobody
+ * else can write to it. Every file is stored with its SHA-256 digest, which is checked before deserializing it.
+ *
+ * Any error reading or writing a file is logged and rules are compiled as if there was no cache.
+ */
+public class KieBaseCache {
+
+    /** Logger instance. */
+    private static final Logger LOGGER = LogManager.getLogger(KieBaseCache.class);
+
+    /** System property setting the cache directory. */
+    public static final String CACHE_DIR_PROPERTY = "subscription-matcher.cache-dir";
+
+    /** Classes imported by rules, or used as globals. */
+    private static final Pattern IMPORT = Pattern.compile("^\\s*(?:import|global)\\s+([\\w.]+)", Pattern.MULTILINE);
+
+    private KieBaseCache() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Returns a rule base from the cache, or compiles and caches it.
+     *
+     * @param name the rule base name, used in file names
+     * @param ruleResources class path resources of all rule files in the rule base
+     * @param compiler compiles the rule base
+     * @return the rule base
+     */
+    public static KieBase get(String name, List<String> ruleResources, Supplier<KieBase> compiler) {
+        Optional<Path> file = getCacheDirectory().flatMap(directory -> getKey(ruleResources)
+                .map(key -> directory.resolve(name + "-" + key + ".bin")));
+
+        if (file.isPresent() && Files.isRegularFile(file.get())) {
+            long start = System.currentTimeMillis();
+            try {
+                byte[] bytes = Files.readAllBytes(file.get());
+                String digest = new String(Files.readAllBytes(getDigestFile(file.get())), StandardCharsets.US_ASCII);
+                if (!digest.trim().equals(toHex(sha256(bytes)))) {
+                    throw new IOException("Digest mismatch");
+                }
+                KieBase result = (KieBase) DroolsStreamUtils.streamIn(bytes, KieBaseCache.class.getClassLoader());
+                LOGGER.info("Rule base {} loaded from {} in {}ms", name, file.get(),
+                        System.currentTimeMillis() - start);
+                return result;
+            }
+            catch (IOException | ClassNotFoundException | NoSuchAlgorithmException | RuntimeException e) {
+                LOGGER.warn("Unable to load rule base {} from {}, compiling it: {}", name, file.get(),
+                        e.toString());
+            }
+        }
+
+        KieBase result = compiler.get();
+        file.ifPresent(f -> store(result, f));
+        return result;
+    }
+
+    private static void store(KieBase kieBase, Path file) {
+        try {
+            byte[] bytes = DroolsStreamUtils.streamOut(kieBase);
+            // concurrent processes write equal files, so the last one wins
+            write(file, bytes);
+            write(getDigestFile(file), toHex(sha256(bytes)).getBytes(StandardCharsets.US_ASCII));
+        }
+        catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            LOGGER.warn("Unable to store rule base to {}: {}", file, e.toString());
+        }
+    }
+
+    private static void write(Path file, byte[] bytes) throws IOException {
+        Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporaryFile, bytes);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static Path getDigestFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".sha256");
+    }
+
+    private static Optional<Path> getCacheDirectory() {
+        Path directory;
+        String property = java.lang.System.getProperty(CACHE_DIR_PROPERTY);
+        if (property != null) {
+            if (property.isEmpty()) {
+                return Optional.empty();
+            }
+            directory = Paths.get(property).toAbsolutePath();
+        }
+        else {
+            String xdgCacheHome = java.lang.System.getenv("XDG_CACHE_HOME");
+            Path cacheHome = xdgCacheHome != null && !xdgCacheHome.isEmpty() ?
+                Paths.get(xdgCacheHome) :
+                Paths.get(java.lang.System.getProperty("user.home"), ".cache");
+            directory = cacheHome.toAbsolutePath().resolve("subscription-matcher");
+        }
+
+        // serialized rule bases contain code, so only the owner can write them
+        try {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory.getParent());
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rwx------")));
+            }
+
+            Path realDirectory = directory.toRealPath();
+            UserPrincipal user = realDirectory.getFileSystem().getUserPrincipalLookupService()
+                    .lookupPrincipalByName(java.lang.System.getProperty("user.name"));
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(realDirectory);
+            if (!Files.getOwner(realDirectory).equals(user) || permissions.contains(PosixFilePermission.GROUP_WRITE) ||
+                    permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                LOGGER.warn("Compiled rules are not cached: {} must belong to {} and be writable by nobody else",
+                        directory, user.getName());
+                return Optional.empty();
+            }
+            return Optional.of(realDirectory);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            LOGGER.debug("Compiled rules are not cached: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<String> getKey(List<String> ruleResources) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(org.drools.core.util.Drools.getFullVersion().getBytes(StandardCharsets.UTF_8));
+            for (String ruleResource : ruleResources) {
+                String rules = new String(readResource(ruleResource), StandardCharsets.UTF_8);
+                digest.update(rules.getBytes(StandardCharsets.UTF_8));
+
+                // classes of this program used by rules, nested ones are in the file of their outer class
+                Matcher matcher = IMPORT.matcher(rules);
+                while (matcher.find()) {
+                    String className = matcher.group(1);
+                    while (className.startsWith("com.suse.") && className.contains(".")) {
+                        String resource = className.replace('.', '/') + ".class";
+                        if (KieBaseCache.class.getClassLoader().getResource(resource) != null) {
+                            digest.update(readResource(resource));
+                            break;
+                        }
+                        className = className.substring(0, className.lastIndexOf('.'));
+                    }
+                }
+            }
+
+            return Optional.of(toHex(digest.digest()));
+        }
+        catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.debug("Compiled rules are not cached: {}", e.toString());
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance("SHA-256").digest(bytes);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private static byte[] readResource(String resource) throws IOException {
+        try (InputStream stream = KieBaseCache.class.getClassLoader().getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new IOException("Resource not found: " + resource);
+            }
+            return stream.readAllBytes();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.suse.matcher;
 
+import com.suse.matcher.OptaPlanner.ScoreCalculator;
+import com.suse.matcher.OutputWriter.Format;
+import com.suse.matcher.SolverConfigBuilder.Profile;
 import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonOutput;
 import com.suse.matcher.solver.Assignment;
 
 import org.apache.commons.cli.BasicParser;
@@ -15,10 +19,14 @@ import org.apache.logging.log4j.core.LoggerContext;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
 
 /**
@@ -49,20 +57,83 @@ public class Main {
                 Optional<Character> delimiter = commandLine.hasOption('d') ?
                     Optional.of(commandLine.getOptionValue('d').charAt(0)) :
                     Optional.empty();
+                int threads = commandLine.hasOption('t') ? Integer.parseInt(commandLine.getOptionValue('t')) : 1;
+                ScoreCalculator scoreCalculator = commandLine.hasOption('s') ?
+                    ScoreCalculator.valueOf(commandLine.getOptionValue('s').toUpperCase()) :
+                    ScoreCalculator.INCREMENTAL;
+                SolverConfigBuilder solverConfig = new SolverConfigBuilder().scoreCalculator(scoreCalculator);
+                if (commandLine.hasOption('p')) {
+                    solverConfig.profile(Profile.valueOf(commandLine.getOptionValue('p').toUpperCase()));
+                }
+                if (commandLine.hasOption('T')) {
+                    solverConfig.timeLimit(Duration.ofSeconds(Long.parseLong(commandLine.getOptionValue('T'))));
+                }
+                if (commandLine.hasOption('U')) {
+                    solverConfig.unimprovedTimeLimit(Duration.ofSeconds(Long.parseLong(commandLine.getOptionValue('U'))));
+                }
+                if (commandLine.hasOption('b')) {
+                    solverConfig.bestScoreLimit(commandLine.getOptionValue('b'));
+                }
+
+                // in server mode, serve matches until the process is terminated
+                if (commandLine.hasOption('S')) {
+                    int workers = commandLine.hasOption('w') ? Integer.parseInt(commandLine.getOptionValue('w')) : 1;
+                    MatcherServer server = new MatcherServer(Integer.parseInt(commandLine.getOptionValue('S')), workers,
+                            threads, solverConfig, delimiter);
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5)));
+                    server.start();
+                    server.await();
+                    return;
+                }
+
+                // input files are binary if their extension is .bin, output files have the input format by default
+                Optional<Format> format = Optional.ofNullable(commandLine.getOptionValue('f'))
+                    .map(f -> Format.valueOf(f.toUpperCase()));
+                Format inputFormat = commandLine.hasOption('i') ?
+                    Format.of(commandLine.getOptionValue('i')) :
+                    format.orElse(Format.JSON);
                 Optional<String> outdir = Optional.ofNullable(commandLine.getOptionValue('o'));
-                OutputWriter writer = new OutputWriter(outdir, delimiter);
+                OutputWriter writer = new OutputWriter(outdir, delimiter, format.orElse(inputFormat));
 
-                // load input data
-                String inputString = commandLine.hasOption('i') ?
-                    Files.readString(Path.of(commandLine.getOptionValue('i'))) :
-                    new String(System.in.readAllBytes(), Charset.defaultCharset());
+                InitialSolution initialSolution = null;
+                if (commandLine.hasOption('n')) {
+                    initialSolution = new InitialSolution(loadOutput(commandLine.getOptionValue('n')));
+                }
 
-                // save a copy of input data in the output directory
-                writer.writeJsonInput(inputString);
+                // input data is streamed, and a copy is saved in the output directory while reading
+                InputStream inputStream = commandLine.hasOption('i') ?
+                    Files.newInputStream(Path.of(commandLine.getOptionValue('i'))) :
+                    System.in;
+                Charset charset = commandLine.hasOption('i') ? StandardCharsets.UTF_8 : Charset.defaultCharset();
 
                 // do the matching
-                JsonInput input = new JsonIO().loadInput(inputString);
-                Assignment assignment = new Matcher(false).match(input);
+                Assignment assignment;
+                try (InputStream tee = writer.teeInput(inputStream, inputFormat)) {
+                    Matcher matcher = new Matcher(threads, solverConfig);
+                    if (inputFormat == Format.BINARY || commandLine.hasOption('I')) {
+                        // change detection needs the whole input document
+                        long parseStart = System.currentTimeMillis();
+                        JsonInput input = inputFormat == Format.BINARY ?
+                            new BinaryIO().readInput(tee) :
+                            new JsonIO().loadInput(new InputStreamReader(tee, charset));
+                        long parseDuration = System.currentTimeMillis() - parseStart;
+                        PreviousRun previousRun = null;
+                        if (commandLine.hasOption('I')) {
+                            previousRun = new PreviousRun(loadInput(commandLine.getOptionValue('I')),
+                                    loadOutput(commandLine.getOptionValue('O')), input);
+                            logger.info("{} systems and {} subscriptions changed since the previous run",
+                                    previousRun.getChangedSystemCount(), previousRun.getChangedSubscriptionCount());
+                            if (initialSolution == null) {
+                                initialSolution = previousRun.getInitialSolution();
+                            }
+                        }
+                        assignment = matcher.match(input, previousRun, initialSolution);
+                        assignment.getMetrics().addTiming("input_parse", parseDuration);
+                    }
+                    else {
+                        assignment = matcher.match(new InputStreamReader(tee, charset), initialSolution);
+                    }
+                }
 
                 // write output data
                 writer.writeOutput(assignment, logLevel);
@@ -73,6 +144,10 @@ public class Main {
                 logger.error("Unexpected I/O error", ex);
                 throw new UncheckedIOException(ex);
             }
+            catch (InterruptedException ex) {
+                logger.error("Interrupted", ex);
+                Thread.currentThread().interrupt();
+            }
             catch (RuntimeException ex) {
                 logger.error("Unexpected error", ex);
                 throw ex;
@@ -80,16 +155,46 @@ public class Main {
         }
     }
 
+    private static JsonInput loadInput(String fileName) throws IOException {
+        if (Format.of(fileName) == Format.BINARY) {
+            try (InputStream stream = Files.newInputStream(Path.of(fileName))) {
+                return new BinaryIO().readInput(stream);
+            }
+        }
+        return new JsonIO().loadInput(Files.readString(Path.of(fileName)));
+    }
+
+    private static JsonOutput loadOutput(String fileName) throws IOException {
+        if (Format.of(fileName) == Format.BINARY) {
+            try (InputStream stream = Files.newInputStream(Path.of(fileName))) {
+                return new BinaryIO().readOutput(stream);
+            }
+        }
+        return new JsonIO().loadOutput(Files.readString(Path.of(fileName)));
+    }
+
     private static CommandLine parseCommandLine(String[] args) {
         CommandLine cmd = null;
         Options opts = new Options();
         opts.addOption("h", "help", false, "show this help");
-        opts.addOption("i", "input", true, "input.json file (Default: standard input)");
+        opts.addOption("i", "input", true, "input.json or input.bin file (Default: standard input)");
         opts.addOption("o", "output-directory", true, "Output directory (Default: current directory)");
         opts.addOption("l", "log-directory", true, "Logging directory (Default: none, only log via STDERR)");
         opts.addOption("v", "log-level", true,
                 "Log level (Default: INFO, Possible values: OFF, FATAL, ERROR, WARN, INFO, DEBUG, TRACE, ALL)");
         opts.addOption("d", "delimiter", true, "CSV Delimiter (Default: ,)");
+        opts.addOption("t", "threads", true, "Number of threads used to optimize independent parts of the problem (Default: 1)");
+        opts.addOption("s", "score-calculator", true, "Score calculation implementation (Default: incremental, Possible values: incremental, drl)");
+        opts.addOption("p", "profile", true, "Search effort (Default: balanced, Possible values: fast, balanced, thorough)");
+        opts.addOption("T", "time-limit", true, "Maximum optimization time in seconds (Default: none, 3600 for every part of the problem)");
+        opts.addOption("U", "unimproved-time-limit", true, "Stop optimizing a part of the problem after this many seconds without improvement (Default: none)");
+        opts.addOption("b", "best-score-limit", true, "Stop optimizing when the problem reaches this score, eg. 0hard/1000soft (Default: none)");
+        opts.addOption("S", "serve", true, "Serve matches over HTTP on the given local port instead of matching once");
+        opts.addOption("w", "workers", true, "Number of matches served concurrently in server mode (Default: 1)");
+        opts.addOption("I", "previous-input", true, "input file of a previous run, to reuse its matches for unchanged parts instead of optimizing them again (requires -O)");
+        opts.addOption("O", "previous-output", true, "output file of a previous run, to reuse its matches (requires -I)");
+        opts.addOption("n", "initial-solution", true, "output file of a previous run, used as starting point for optimization");
+        opts.addOption("f", "format", true, "Format of output documents, and of standard input (Default: format of the input file, json for standard input, Possible values: json, binary)");
 
         CommandLineParser parser = new BasicParser();
         try {
@@ -106,6 +211,44 @@ public class Main {
                 throw new ParseException("Given logging directory does not exist " +
                         "or is not a directory");
             }
+            if (cmd.hasOption('t') && ! cmd.getOptionValue('t').matches("[1-9][0-9]{0,3}")) {
+                throw new ParseException("Given number of threads is not a positive number");
+            }
+            if (cmd.hasOption('s') && ! cmd.getOptionValue('s').matches("(?i)incremental|drl")) {
+                throw new ParseException("Given score calculator is not one of incremental, drl");
+            }
+            if (cmd.hasOption('p') && ! cmd.getOptionValue('p').matches("(?i)fast|balanced|thorough")) {
+                throw new ParseException("Given profile is not one of fast, balanced, thorough");
+            }
+            if (cmd.hasOption('T') && ! cmd.getOptionValue('T').matches("[1-9][0-9]{0,8}")) {
+                throw new ParseException("Given time limit is not a positive number");
+            }
+            if (cmd.hasOption('U') && ! cmd.getOptionValue('U').matches("[1-9][0-9]{0,8}")) {
+                throw new ParseException("Given unimproved time limit is not a positive number");
+            }
+            if (cmd.hasOption('b') && ! cmd.getOptionValue('b').matches("-?[0-9]{1,9}hard/-?[0-9]{1,9}soft")) {
+                throw new ParseException("Given best score limit is not a score like 0hard/1000soft");
+            }
+            if (cmd.hasOption('S') && ! (cmd.getOptionValue('S').matches("[0-9]{1,5}") &&
+                    Integer.parseInt(cmd.getOptionValue('S')) <= 65535)) {
+                throw new ParseException("Given port is not a valid port number");
+            }
+            if (cmd.hasOption('w') && ! cmd.getOptionValue('w').matches("[1-9][0-9]{0,3}")) {
+                throw new ParseException("Given number of workers is not a positive number");
+            }
+            if (cmd.hasOption('f') && ! cmd.getOptionValue('f').matches("(?i)json|binary")) {
+                throw new ParseException("Given format is not one of json, binary");
+            }
+            if (cmd.hasOption('I') != cmd.hasOption('O')) {
+                throw new ParseException("Previous input and previous output must be given together");
+            }
+            if (cmd.hasOption('I') && ! (new File(cmd.getOptionValue('I')).isFile() &&
+                    new File(cmd.getOptionValue('O')).isFile())) {
+                throw new ParseException("Given previous input or output file does not exist");
+            }
+            if (cmd.hasOption('n') && ! new File(cmd.getOptionValue('n')).isFile()) {
+                throw new ParseException("Given initial solution file does not exist");
+            }
         }
         catch (ParseException e) {
             System.err.println("Failed to parse comand line properties:" + e);
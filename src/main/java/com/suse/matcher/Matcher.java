@@ -1,5 +1,6 @@
 package com.suse.matcher;
 
+import com.suse.matcher.OptaPlanner.ScoreCalculator;
 import com.suse.matcher.facts.InstalledProduct;
 import com.suse.matcher.facts.PotentialMatch;
 import com.suse.matcher.json.JsonInput;
@@ -9,9 +10,12 @@ import com.suse.matcher.solver.Match;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -27,16 +31,51 @@ public class Matcher {
     /** Logger instance. */
     private static final Logger LOGGER = LogManager.getLogger(Matcher.class);
 
-    /** true if the matcher is being tested. */
-    private final boolean testing;
+    /** Maximum number of threads used by the CSP solver. */
+    private final int threads;
+
+    /** Configuration of the CSP solver. */
+    private final SolverConfigBuilder solverConfig;
 
     /**
-     * Standard constructor.
+     * Standard constructor, solves on a single thread.
      *
      * @param testingIn true if running as a unit test, false otherwise
      */
     public Matcher(boolean testingIn) {
-        testing = testingIn;
+        this(testingIn, 1);
+    }
+
+    /**
+     * Constructor specifying the number of solving threads.
+     *
+     * @param testingIn true if running as a unit test, false otherwise
+     * @param threadsIn maximum number of independent parts of the problem to solve in parallel
+     */
+    public Matcher(boolean testingIn, int threadsIn) {
+        this(testingIn, threadsIn, ScoreCalculator.INCREMENTAL);
+    }
+
+    /**
+     * Constructor specifying the number of solving threads and the score calculation implementation.
+     *
+     * @param testingIn true if running as a unit test, false otherwise
+     * @param threadsIn maximum number of independent parts of the problem to solve in parallel
+     * @param scoreCalculatorIn the score calculation implementation
+     */
+    public Matcher(boolean testingIn, int threadsIn, ScoreCalculator scoreCalculatorIn) {
+        this(threadsIn, new SolverConfigBuilder().testing(testingIn).scoreCalculator(scoreCalculatorIn));
+    }
+
+    /**
+     * Constructor specifying the number of solving threads and the configuration of the CSP solver.
+     *
+     * @param threadsIn maximum number of independent parts of the problem to solve in parallel
+     * @param solverConfigIn the configuration of the CSP solver
+     */
+    public Matcher(int threadsIn, SolverConfigBuilder solverConfigIn) {
+        threads = threadsIn;
+        solverConfig = solverConfigIn;
     }
 
     /**
@@ -46,11 +85,52 @@ public class Matcher {
      * @return an object summarizing the match
      */
     public Assignment match(JsonInput input) {
+        return match(input, null, null);
+    }
+
+    /**
+     * Matches a list of systems to a list of subscriptions, reusing matches of a previous run for the
+     * parts of the problem that did not change since, and starting from an initial solution for the others.
+     *
+     * @param input a JSON input data blob
+     * @param previousRun the previous run, null to match all parts
+     * @param initialSolution the initial solution, null to match from scratch
+     * @return an object summarizing the match
+     */
+    public Assignment match(JsonInput input, PreviousRun previousRun, InitialSolution initialSolution) {
         // convert inputs into facts the rule engine can reason about
-        Collection<Object> baseFacts = FactConverter.convertToFacts(input);
+        // ids of facts generated from input data and from rules are unique within this run
+        IdInterner idInterner = new IdInterner();
+        Metrics metrics = new Metrics();
+        long start = System.currentTimeMillis();
+        Collection<Object> baseFacts = FactConverter.convertToFacts(input, idInterner);
+        metrics.addTiming("fact_conversion", System.currentTimeMillis() - start);
+        return match(baseFacts, idInterner, metrics, previousRun, initialSolution);
+    }
+
+    /**
+     * Matches a list of systems to a list of subscriptions read from a JSON input document, without holding
+     * the whole document in memory.
+     *
+     * @param input a reader of the JSON input document
+     * @param initialSolution the initial solution, null to match from scratch
+     * @return an object summarizing the match
+     * @throws com.google.gson.JsonSyntaxException if the document is empty or not valid JSON
+     * @throws IOException if the document cannot be read
+     */
+    public Assignment match(Reader input, InitialSolution initialSolution) throws IOException {
+        IdInterner idInterner = new IdInterner();
+        Metrics metrics = new Metrics();
+        long start = System.currentTimeMillis();
+        Collection<Object> baseFacts = FactConverter.convertToFacts(input, idInterner);
+        metrics.addTiming("fact_conversion", System.currentTimeMillis() - start);
+        return match(baseFacts, idInterner, metrics, null, initialSolution);
+    }
 
+    private Assignment match(Collection<Object> baseFacts, IdInterner idInterner, Metrics metrics,
+            PreviousRun previousRun, InitialSolution initialSolution) {
         // activate the rule engine to deduce more facts
-        Drools drools = new Drools(baseFacts);
+        Drools drools = new Drools(baseFacts, idInterner, metrics);
         Collection<Object> deducedFacts = drools.getResult();
 
         // among deductions, the rule engine determines system to subscription "matchability":
@@ -72,18 +152,27 @@ public class Matcher {
 
         // compute the map of conflicts between Matches
         // this is used by the CSP solver to avoid bad solutions
-        Map<Integer, List<List<Integer>>> conflictMap = getConflictMap(deducedFacts);
+        long start = System.currentTimeMillis();
+        Map<Integer, List<List<Integer>>> conflictMap = getConflictMap(matches, deducedFacts);
 
         // compute sorted potential matches for caching
         List<PotentialMatch> sortedPotentialMatches = getPotentialMatches(deducedFacts).sorted().distinct().collect(Collectors.toList());
+        metrics.addTiming("conflict_map", System.currentTimeMillis() - start);
+
+        metrics.addCount("matches", matches.size());
+        metrics.addCount("potential_matches", sortedPotentialMatches.size());
+        metrics.addCount("conflict_sets", conflictMap.values().stream().flatMap(List::stream).distinct().count());
 
         // activate the CSP solver with all deduced facts as inputs
-        OptaPlanner optaPlanner = new OptaPlanner(
-                new Assignment(matches, deducedFacts, conflictMap, sortedPotentialMatches), testing);
+        Assignment unsolved = new Assignment(matches, deducedFacts, conflictMap, sortedPotentialMatches);
+        unsolved.setMetrics(metrics);
+        OptaPlanner optaPlanner = new OptaPlanner(unsolved, solverConfig, threads, previousRun, initialSolution);
         Assignment result = optaPlanner.getResult();
 
         // add user messages taking rule engine deductions and CSP solver output into account
+        start = System.currentTimeMillis();
         MessageCollector.addMessages(result);
+        metrics.addTiming("messages", System.currentTimeMillis() - start);
 
         return result;
     }
@@ -94,7 +183,13 @@ public class Matcher {
                 .map(o -> (PotentialMatch)o);
     }
 
-    private List<Match> getMatches(Collection<Object> deducedFacts) {
+    /**
+     * Returns one unconfirmed {@link Match} per {@link PotentialMatch} group, sorted by id.
+     *
+     * @param deducedFacts facts deduced by Drools
+     * @return the matches
+     */
+    List<Match> getMatches(Collection<Object> deducedFacts) {
         return getPotentialMatches(deducedFacts)
             .map(p -> p.groupId)
             .sorted()
@@ -103,7 +198,14 @@ public class Matcher {
             .collect(Collectors.toList());
     }
 
-    private Map<Integer, List<List<Integer>>> getConflictMap(Collection<Object> deducedFacts) {
+    /**
+     * Returns the map from every {@link Match} id to all conflicting sets where it appears.
+     *
+     * @param matches the matches, sorted by id
+     * @param deducedFacts facts deduced by Drools
+     * @return the conflict map
+     */
+    Map<Integer, List<List<Integer>>> getConflictMap(List<Match> matches, Collection<Object> deducedFacts) {
         // group ids in conflicting sets
         // "conflicting" means they target the same (system, product) couple
         Map<InstalledProduct, Set<Integer>> conflicts = getPotentialMatches(deducedFacts).collect(
@@ -119,14 +221,45 @@ public class Matcher {
             .map(s -> new ArrayList<>(s))
             .collect(Collectors.toList());
 
+        // index Matches by id. Ids come from the run's IdInterner, so they are dense and an array
+        // from id to Match index is not larger than the number of interned ids. Matches are sorted by id
+        int[] matchIds = matches.stream().mapToInt(m -> m.id).toArray();
+        int firstId = matchIds.length == 0 ? 0 : matchIds[0];
+        int[] matchIndexes = new int[matchIds.length == 0 ? 0 : matchIds[matchIds.length - 1] - firstId + 1];
+        for (int i = 0; i < matchIds.length; i++) {
+            matchIndexes[matchIds[i] - firstId] = i;
+        }
+
+        // build an inverted index from each Match to the conflict sets it is in, in two passes over
+        // all sets: first count sets per Match, then fill in set indexes
+        int[] offsets = new int[matchIds.length + 1];
+        for (List<Integer> set : conflictList) {
+            for (Integer id : set) {
+                offsets[matchIndexes[id - firstId] + 1]++;
+            }
+        }
+        for (int i = 0; i < matchIds.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] setIndexes = new int[offsets[matchIds.length]];
+        int[] positions = Arrays.copyOf(offsets, matchIds.length);
+        for (int i = 0; i < conflictList.size(); i++) {
+            for (Integer id : conflictList.get(i)) {
+                setIndexes[positions[matchIndexes[id - firstId]]++] = i;
+            }
+        }
+
         // now build a map from each Match id
         // to all of the conflict sets in which it is in
-        return getMatches(deducedFacts).stream()
-            .collect(Collectors.toMap(
-                    m -> m.id,
-                    m -> conflictList.stream()
-                       .filter(s -> Collections.binarySearch(s, m.id) >= 0)
-                       .collect(Collectors.toList())
-            ));
+        Map<Integer, List<List<Integer>>> result = new HashMap<>();
+        for (int i = 0; i < matchIds.length; i++) {
+            List<List<Integer>> sets = new ArrayList<>(offsets[i + 1] - offsets[i]);
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                sets.add(conflictList.get(setIndexes[j]));
+            }
+            result.put(matchIds[i], sets);
+        }
+        return result;
     }
 }
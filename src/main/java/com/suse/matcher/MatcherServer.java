@@ -0,0 +1,262 @@
+package com.suse.matcher;
+
+import com.suse.matcher.solver.Assignment;
+
+import com.google.gson.JsonParseException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves matches over HTTP from a long-running process, so that rules are compiled and code is
+ * JIT-compiled only once for many matches.
+ *
+ * The server only listens on the loopback interface. Endpoints are:
+ * - POST /match: takes an input JSON document, returns a JSON object with the "output" document and CSV
+ *   "reports" by file name
+ * - GET /health: returns a JSON object with status "ok"
+ * - GET /timings: returns a JSON object with counts and durations of matches served so far
+ *
+ * Requests are served concurrently by a pool of worker threads. Compiled rules and the solver factory are shared
+ * by all requests.
+ *
+ * Only TCP is supported, not Unix domain sockets: the HTTP server of the JDK cannot use them, and socket channels
+ * only support them from Java 16, while this program targets Java 11.
+ */
+public class MatcherServer {
+
+    /** Logger instance. */
+    private static final Logger LOGGER = LogManager.getLogger(MatcherServer.class);
+
+    /** Utility to convert from/to JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    /** The underlying HTTP server. */
+    private final HttpServer server;
+
+    /** Worker threads. */
+    private final ExecutorService workers;
+
+    /** Maximum number of threads used by the CSP solver for every match. */
+    private final int threads;
+
+    /** Configuration of the CSP solver, shared by all matches. */
+    private final SolverConfigBuilder solverConfig;
+
+    /** CSV delimiter, if not the default one. */
+    private final Optional<Character> delimiter;
+
+    /** Released when the server is stopped. */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /** Start time in milliseconds. */
+    private final long startTime = System.currentTimeMillis();
+
+    /** Number of successful matches. */
+    private final AtomicLong matchCount = new AtomicLong();
+
+    /** Number of failed matches. */
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /** Total duration of successful matches, in milliseconds. */
+    private final AtomicLong totalMatchMillis = new AtomicLong();
+
+    /** Maximum duration of successful matches, in milliseconds. */
+    private final AtomicLong maxMatchMillis = new AtomicLong();
+
+    /** Duration of the last successful match, in milliseconds. */
+    private final AtomicLong lastMatchMillis = new AtomicLong();
+
+    /**
+     * Standard constructor, binds the server to a loopback port.
+     *
+     * @param port the TCP port, 0 for any free port
+     * @param workerCount number of requests served concurrently
+     * @param threadsIn maximum number of threads used by the CSP solver for every match
+     * @param solverConfigIn the CSP solver configuration, later changes are ignored
+     * @param delimiterIn an optional CSV delimiter. If empty, comma is used as default
+     * @throws IOException if the port cannot be bound
+     */
+    public MatcherServer(int port, int workerCount, int threadsIn, SolverConfigBuilder solverConfigIn,
+            Optional<Character> delimiterIn) throws IOException {
+        threads = threadsIn;
+        solverConfig = solverConfigIn.freeze();
+        delimiter = delimiterIn;
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/match", this::handleMatch);
+        server.createContext("/health", exchange -> handleGet(exchange, Map.of("status", "ok")));
+        server.createContext("/timings", exchange -> handleGet(exchange, getTimings()));
+
+        workers = Executors.newFixedThreadPool(workerCount);
+        server.setExecutor(workers);
+    }
+
+    /**
+     * Compiles rules and configures solvers, then starts serving requests.
+     */
+    public void start() {
+        long start = System.currentTimeMillis();
+        Drools.getKieBase();
+        OptaPlanner.getScoreKieBase();
+        solverConfig.getFactory();
+        LOGGER.info("Rules compiled in {}ms", System.currentTimeMillis() - start);
+
+        server.start();
+        LOGGER.info("Listening on http://{}:{}", server.getAddress().getHostString(), getPort());
+    }
+
+    /**
+     * Waits until the server is stopped.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops serving requests, waiting at most the specified time for ongoing ones to complete.
+     *
+     * @param delaySeconds maximum time to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        stopped.countDown();
+        LOGGER.info("Server stopped");
+    }
+
+    /**
+     * Returns the TCP port the server is bound to.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleMatch(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendJson(exchange, 405, Map.of("error", "Only POST is supported"));
+                return;
+            }
+
+            // input is streamed, so syntax errors are only detected while matching
+            Map<String, Object> response;
+            try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                response = match(reader);
+            }
+            catch (JsonParseException e) {
+                errorCount.incrementAndGet();
+                sendJson(exchange, 400, Map.of("error", "Invalid input: " + e.getMessage()));
+                return;
+            }
+            catch (IOException | RuntimeException e) {
+                errorCount.incrementAndGet();
+                LOGGER.error("Unexpected error", e);
+                sendJson(exchange, 500, Map.of("error", String.valueOf(e.getMessage())));
+                return;
+            }
+            sendJson(exchange, 200, response);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private Map<String, Object> match(Reader input) throws IOException {
+        long start = System.currentTimeMillis();
+        Assignment assignment = new Matcher(threads, solverConfig).match(input, null);
+
+        // reports are written to a temporary directory, then returned
+        Path directory = Files.createTempDirectory("subscription-matcher");
+        Map<String, String> reports = new LinkedHashMap<>();
+        try {
+            new OutputWriter(Optional.of(directory.toString()), delimiter).writeOutput(assignment, Optional.empty());
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(f -> f.toString().endsWith(".csv")).sorted().collect(Collectors.toList())) {
+                    reports.put(file.getFileName().toString(), Files.readString(file, StandardCharsets.UTF_8));
+                }
+            }
+        }
+        finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("output", FactConverter.convertToOutput(assignment));
+        response.put("reports", reports);
+
+        long duration = System.currentTimeMillis() - start;
+        matchCount.incrementAndGet();
+        totalMatchMillis.addAndGet(duration);
+        maxMatchMillis.accumulateAndGet(duration, Math::max);
+        lastMatchMillis.set(duration);
+        LOGGER.info("Match served in {}ms", duration);
+        return response;
+    }
+
+    private Map<String, Object> getTimings() {
+        long count = matchCount.get();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("uptime_ms", System.currentTimeMillis() - startTime);
+        result.put("matches", count);
+        result.put("errors", errorCount.get());
+        result.put("total_match_ms", totalMatchMillis.get());
+        result.put("average_match_ms", count == 0 ? 0 : totalMatchMillis.get() / count);
+        result.put("max_match_ms", maxMatchMillis.get());
+        result.put("last_match_ms", lastMatchMillis.get());
+        return result;
+    }
+
+    private static void handleGet(HttpExchange exchange, Object response) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendJson(exchange, 405, Map.of("error", "Only GET is supported"));
+                return;
+            }
+            sendJson(exchange, 200, response);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object response) throws IOException {
+        byte[] body = JSON_IO.toJson(response).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().put("Content-Type", List.of("application/json; charset=utf-8"));
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(body);
+        }
+    }
+}
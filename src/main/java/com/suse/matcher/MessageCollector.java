@@ -2,15 +2,13 @@ package com.suse.matcher;
 
 import com.suse.matcher.facts.Message;
 import com.suse.matcher.facts.PinnedMatch;
-import com.suse.matcher.json.JsonMatch;
 import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.MatchResult;
 
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.Objects;
 import java.util.TreeMap;
-import java.util.stream.Stream;
 
 /**
  * Generates Messages facts and adds them to an Assignment.
@@ -27,18 +25,20 @@ public class MessageCollector {
      * @param assignment the assignment
      */
     public static void addMessages(Assignment assignment) {
-        // filter out interesting collections from facts
-        Stream<PinnedMatch> pinnedMatchFacts = assignment.getProblemFactStream(PinnedMatch.class);
+        // confirmed matches are computed once and shared by all messages
+        MatchResult result = assignment.getMatchResult();
 
-        Collection<JsonMatch> confirmedMatchFacts = FactConverter.getMatches(assignment);
-
-        // add messages about unsatisfied pins
         Collection<Message> messages = new LinkedList<>();
-        pinnedMatchFacts
-            .filter(pin -> confirmedMatchFacts.stream() // filter unmatched pins
-                    .noneMatch(m -> Objects.equals(m.getSubscriptionId(), pin.subscriptionId) &&
-                        Objects.equals(m.getSystemId(), pin.systemId))
-            )
+        addUnsatisfiedPinnedMatchMessages(assignment, result, messages);
+
+        assignment.getProblemFacts().addAll(messages);
+    }
+
+    private static void addUnsatisfiedPinnedMatchMessages(Assignment assignment, MatchResult result,
+            Collection<Message> messages) {
+        assignment.getProblemFactStream(PinnedMatch.class)
+            .filter(pin -> pin.systemId == null || pin.subscriptionId == null ||
+                    !result.isMatched(pin.systemId, pin.subscriptionId))
             .forEach(unmatchedPin -> {
                 Message message = new Message(Message.Level.INFO, "unsatisfied_pinned_match", new TreeMap<>(Map.of(
                     "system_id", unmatchedPin.systemId.toString(),
@@ -46,7 +46,5 @@ public class MessageCollector {
                 )));
                 messages.add(message);
             });
-
-        assignment.getProblemFacts().addAll(messages);
     }
 }
@@ -0,0 +1,107 @@
+package com.suse.matcher;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Timings and counters of one matcher run, written as metrics.json next to the reports, and the trace of
+ * best scores found by the solver, written as solver_trace.ndjson.
+ *
+ * Timings are in milliseconds and add up when the same name is recorded more than once, eg. by components of the
+ * problem solved in parallel. When the input document is streamed, JSON parsing is part of fact conversion.
+ *
+ * All methods are thread safe.
+ */
+public class Metrics {
+
+    /** Durations in milliseconds, by name. */
+    private final Map<String, Long> timings = new TreeMap<>();
+
+    /** Counters, by name. */
+    private final Map<String, Long> counts = new TreeMap<>();
+
+    /** Number of facts, by class name. */
+    private final Map<String, Long> facts = new TreeMap<>();
+
+    /** Number of rule firings, by rule name. */
+    private final Map<String, Long> ruleFirings = new TreeMap<>();
+
+    /** New best scores found by the solver, in order. */
+    private final List<Map<String, Object>> solverEvents = new ArrayList<>();
+
+    /**
+     * Adds a duration.
+     *
+     * @param name the timing name
+     * @param millis the duration in milliseconds
+     */
+    public synchronized void addTiming(String name, long millis) {
+        timings.merge(name, millis, Long::sum);
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param name the counter name
+     * @param count the number to add
+     */
+    public synchronized void addCount(String name, long count) {
+        counts.merge(name, count, Long::sum);
+    }
+
+    /**
+     * Counts facts by class.
+     *
+     * @param factsIn the facts
+     */
+    public synchronized void addFacts(Collection<Object> factsIn) {
+        for (Object fact : factsIn) {
+            facts.merge(fact.getClass().getSimpleName(), 1L, Long::sum);
+        }
+    }
+
+    /**
+     * Adds rule firings.
+     *
+     * @param firings number of firings by rule name
+     */
+    public synchronized void addRuleFirings(Map<String, Long> firings) {
+        firings.forEach((rule, count) -> ruleFirings.merge(rule, count, Long::sum));
+    }
+
+    /**
+     * Adds a new best score found by the solver.
+     *
+     * @param event the event fields, by name
+     */
+    public synchronized void addSolverEvent(Map<String, Object> event) {
+        solverEvents.add(event);
+    }
+
+    /**
+     * Returns new best scores found by the solver, in the order they were found.
+     *
+     * @return the events
+     */
+    public synchronized List<Map<String, Object>> getSolverEvents() {
+        return new ArrayList<>(solverEvents);
+    }
+
+    /**
+     * Returns all metrics but the solver trace, in a form suitable for JSON serialization.
+     *
+     * @return a map of sections, each a sorted map from name to value
+     */
+    public synchronized Map<String, Map<String, Long>> toMap() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        result.put("timings_ms", new TreeMap<>(timings));
+        result.put("counts", new TreeMap<>(counts));
+        result.put("facts", new TreeMap<>(facts));
+        result.put("rule_firings", new TreeMap<>(ruleFirings));
+        return result;
+    }
+}
@@ -3,39 +3,44 @@ package com.suse.matcher;
 import com.suse.matcher.facts.OneTwoPenalty;
 import com.suse.matcher.facts.Penalty;
 import com.suse.matcher.solver.Assignment;
-import com.suse.matcher.solver.Match;
-import com.suse.matcher.solver.MatchMoveIteratorFactory;
-import com.suse.matcher.solver.MatchSwapMoveIteratorFactory;
+import com.suse.matcher.solver.AssignmentScoreCalculator;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message.Level;
+import org.kie.api.builder.model.KieModuleModel;
+import org.kie.internal.builder.conf.PropertySpecificOption;
+import org.optaplanner.core.api.score.Score;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
-import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
-import org.optaplanner.core.config.constructionheuristic.placer.QueuedEntityPlacerConfig;
-import org.optaplanner.core.config.heuristic.selector.common.SelectionCacheType;
-import org.optaplanner.core.config.heuristic.selector.common.SelectionOrder;
-import org.optaplanner.core.config.heuristic.selector.entity.EntitySelectorConfig;
-import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
-import org.optaplanner.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
-import org.optaplanner.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
-import org.optaplanner.core.config.heuristic.selector.value.ValueSelectorConfig;
-import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
-import org.optaplanner.core.config.localsearch.decider.acceptor.AcceptorConfig;
-import org.optaplanner.core.config.localsearch.decider.forager.LocalSearchForagerConfig;
-import org.optaplanner.core.config.score.definition.ScoreDefinitionType;
-import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
 import org.optaplanner.core.config.solver.EnvironmentMode;
-import org.optaplanner.core.config.solver.SolverConfig;
-import org.optaplanner.core.config.solver.random.RandomType;
-import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.optaplanner.core.impl.constructionheuristic.scope.ConstructionHeuristicPhaseScope;
+import org.optaplanner.core.impl.localsearch.scope.LocalSearchPhaseScope;
+import org.optaplanner.core.impl.phase.event.PhaseLifecycleListenerAdapter;
+import org.optaplanner.core.impl.phase.scope.AbstractPhaseScope;
+import org.optaplanner.core.impl.phase.scope.AbstractStepScope;
+import org.optaplanner.core.impl.score.director.AbstractScoreDirectorFactory;
+import org.optaplanner.core.impl.score.director.ScoreDirectorFactory;
 import org.optaplanner.core.impl.score.director.drools.DroolsScoreDirector;
 import org.optaplanner.core.impl.score.director.drools.DroolsScoreDirectorFactory;
 import org.optaplanner.core.impl.solver.DefaultSolver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -48,47 +53,534 @@ public class OptaPlanner {
     /** Logger instance. */
     private static final Logger LOGGER = LogManager.getLogger(OptaPlanner.class);
 
+    /** Location of score rules. */
+    private static final String SCORE_DRL = "com/suse/matcher/rules/optaplanner/Scores.drl";
+
+    /**
+     * Implementations of score calculation.
+     */
+    public enum ScoreCalculator {
+        /** Java implementation, updating the score on every change (see {@link AssignmentScoreCalculator}). */
+        INCREMENTAL,
+        /** Drools rules in Scores.drl. */
+        DRL
+    }
+
     /** The result. */
     private final Assignment result;
 
+    /**
+     * Instantiates an OptaPlanner instance with the specified unsolved problem, using the incremental score calculator.
+     *
+     * @param unsolved the unsolved problem
+     * @param testing true if running as a unit test, false otherwise
+     * @param threads maximum number of independent parts of the problem to solve in parallel
+     */
+    public OptaPlanner(Assignment unsolved, boolean testing, int threads) {
+        this(unsolved, testing, threads, ScoreCalculator.INCREMENTAL);
+    }
+
     /**
      * Instantiates an OptaPlanner instance with the specified unsolved problem.
      *
      * @param unsolved the unsolved problem
      * @param testing true if running as a unit test, false otherwise
+     * @param threads maximum number of independent parts of the problem to solve in parallel
+     * @param scoreCalculator the score calculation implementation
+     */
+    public OptaPlanner(Assignment unsolved, boolean testing, int threads, ScoreCalculator scoreCalculator) {
+        this(unsolved, new SolverConfigBuilder().testing(testing).scoreCalculator(scoreCalculator), threads, null, null);
+    }
+
+    /**
+     * Instantiates an OptaPlanner instance with the specified unsolved problem, reusing the solution of a previous
+     * run for the independent parts of the problem that did not change since, and starting from an initial solution
+     * for the others.
+     *
+     * @param unsolved the unsolved problem
+     * @param solverConfig the configuration of solvers
+     * @param threads maximum number of independent parts of the problem to solve in parallel
+     * @param previousRun the previous run, null to solve all parts
+     * @param initialSolution the initial solution, null to start with the construction heuristic
      */
-    public OptaPlanner(Assignment unsolved, boolean testing) {
+    public OptaPlanner(Assignment unsolved, SolverConfigBuilder solverConfig, int threads, PreviousRun previousRun,
+            InitialSolution initialSolution) {
         // short circuit the planning in case there's nothing to optimize
         if (unsolved.getMatches().isEmpty()) {
             result = unsolved;
             return;
         }
 
-        // init solver
-        Solver<Assignment> solver = initSolver(testing);
+        Metrics metrics = unsolved.getMetrics();
+
+        // split the problem into independent parts, which can be solved separately
+        long splitStart = System.currentTimeMillis();
+        List<Assignment> components = solverConfig.isDecomposition() ? Decomposer.split(unsolved) : List.of(unsolved);
+        metrics.addTiming("decomposition", System.currentTimeMillis() - splitStart);
+        metrics.addCount("components", components.size());
+        LOGGER.info("Problem split into {} independent components", components.size());
+
+        // restore unchanged parts from the previous run, if any
+        Assignment[] solvedComponents = new Assignment[components.size()];
+        List<Integer> unsolvedIndexes = new ArrayList<>();
+        for (int i = 0; i < components.size(); i++) {
+            Assignment component = components.get(i);
+            if (previousRun != null && previousRun.isUnchanged(component) &&
+                    restore(previousRun.getInitialSolution(), component)) {
+                solvedComponents[i] = component;
+            }
+            else {
+                // initialized Matches are skipped by the construction heuristic
+                if (initialSolution != null) {
+                    initialSolution.apply(component);
+                }
+                unsolvedIndexes.add(i);
+            }
+        }
+        metrics.addCount("components_reused", components.size() - unsolvedIndexes.size());
+        if (previousRun != null) {
+            LOGGER.info("{} components reused from the previous run",
+                    components.size() - unsolvedIndexes.size());
+        }
 
-        // solve problem
+        // step, time and score limits apply to the whole problem, so that run time does not grow with the number of
+        // components. They are split among components in proportion to their sizes before solving, so that results do
+        // not depend on thread scheduling nor on the number of threads
+        if (!solverConfig.isReproducible()) {
+            LOGGER.warn("Time limits are set, results depend on machine speed and load");
+        }
+        int totalMatches = unsolvedIndexes.stream()
+            .mapToInt(i -> components.get(i).getMatches().size())
+            .sum();
+        HardSoftScore scoreGap = solverConfig.getBestScoreLimit()
+            .map(limit -> getScoreGap(limit, components, solvedComponents))
+            .orElse(null);
+
+        // every task builds its own solver when it starts, so that only as many solvers exist as threads. Every solver
+        // re-seeds its random number generator when it starts solving, so results only depend on component contents
+        // and not on thread scheduling
         long start = System.currentTimeMillis();
-        solver.solve(unsolved);
-        LOGGER.info("Optimization phase took {}ms", System.currentTimeMillis() - start);
-        result = solver.getBestSolution();
+        SolverFactory<Assignment> factory = solverConfig.getFactory();
+        boolean exactStepCount = solverConfig.isExactStepCount();
+        List<Supplier<Assignment>> tasks = new ArrayList<>();
+        for (int i : unsolvedIndexes) {
+            Assignment component = components.get(i);
+            int stepCountLimit = getStepCountShare(solverConfig, component, totalMatches);
+            long timeLimit = getTimeShare(solverConfig, component, totalMatches);
+            HardSoftScore bestScoreLimit = getBestScoreShare(scoreGap, component, totalMatches);
+            tasks.add(() -> solve(buildSolver(factory, metrics, i, component, exactStepCount, stepCountLimit,
+                    timeLimit, bestScoreLimit), component));
+        }
+
+        // solve problems
+        int poolSize = Math.min(threads, unsolvedIndexes.size());
+        if (poolSize <= 1) {
+            for (int j = 0; j < unsolvedIndexes.size(); j++) {
+                solvedComponents[unsolvedIndexes.get(j)] = tasks.get(j).get();
+            }
+        }
+        else {
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+            try {
+                List<Future<Assignment>> futures = new ArrayList<>();
+                for (Supplier<Assignment> task : tasks) {
+                    futures.add(executor.submit(task::get));
+                }
+                for (int j = 0; j < unsolvedIndexes.size(); j++) {
+                    solvedComponents[unsolvedIndexes.get(j)] = futures.get(j).get();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while solving", e);
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Unable to solve problem", e.getCause());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+        long duration = System.currentTimeMillis() - start;
+        metrics.addTiming("optimization", duration);
+        LOGGER.info("Optimization phase took {}ms", duration);
+
+        Decomposer.merge(unsolved, Arrays.asList(solvedComponents));
+        result = unsolved;
         LOGGER.info("{} matches confirmed", result.getMatches().stream().filter(m -> m.confirmed).count());
+    }
+
+    /**
+     * Builds a solver for a component, with listeners recording metrics and enforcing limits. Solvers set to an exact
+     * number of steps are never stopped early, not even by an optimal score, so that all of their steps are run.
+     */
+    private static Solver<Assignment> buildSolver(SolverFactory<Assignment> factory, Metrics metrics, int index,
+            Assignment component, boolean exactStepCount, int stepCountLimit, long timeLimit,
+            HardSoftScore bestScoreLimit) {
+        Solver<Assignment> result = factory.buildSolver();
+        if (result instanceof DefaultSolver) {
+            DefaultSolver<Assignment> solver = (DefaultSolver<Assignment>) result;
+            solver.addPhaseLifecycleListener(new PhaseMetricsListener(metrics));
+            solver.addPhaseLifecycleListener(new SolverTraceListener(metrics, index));
+            if (!exactStepCount) {
+                solver.addPhaseLifecycleListener(new OptimalScoreListener(solver, metrics,
+                        AssignmentScoreCalculator.getUpperBound(component)));
+                solver.addPhaseLifecycleListener(new LimitsListener(solver, metrics, stepCountLimit, timeLimit,
+                        bestScoreLimit));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records duration, steps and score calculations of every solver phase. Phases of all components add up.
+     */
+    private static class PhaseMetricsListener extends PhaseLifecycleListenerAdapter<Assignment> {
+
+        /** Metrics of the run. */
+        private final Metrics metrics;
+
+        /** Number of score calculations when the current phase started. */
+        private long startingScoreCalculationCount;
+
+        /**
+         * Standard constructor.
+         *
+         * @param metricsIn metrics of the run
+         */
+        PhaseMetricsListener(Metrics metricsIn) {
+            metrics = metricsIn;
+        }
+
+        @Override
+        public void phaseStarted(AbstractPhaseScope<Assignment> phaseScope) {
+            startingScoreCalculationCount = phaseScope.getSolverScope().getScoreCalculationCount();
+        }
+
+        @Override
+        public void phaseEnded(AbstractPhaseScope<Assignment> phaseScope) {
+            // phase end time and counts are only set after listeners are notified
+            String phase = getPhaseName(phaseScope);
+            metrics.addTiming("optimization." + phase, phaseScope.calculatePhaseTimeMillisSpentUpToNow());
+            metrics.addCount(phase + "_steps", phaseScope.getNextStepIndex());
+            metrics.addCount(phase + "_score_calculations",
+                    phaseScope.getSolverScope().getScoreCalculationCount() - startingScoreCalculationCount);
+        }
+    }
+
+    /**
+     * Records every new best score of a component in the solver trace, and logs it at DEBUG level.
+     *
+     * Every move evaluation is a score calculation, so moves per second are computed from score calculations.
+     */
+    private static class SolverTraceListener extends PhaseLifecycleListenerAdapter<Assignment> {
+
+        /** Metrics of the run. */
+        private final Metrics metrics;
+
+        /** Index of the solved component. */
+        private final int component;
+
+        /**
+         * Standard constructor.
+         *
+         * @param metricsIn metrics of the run
+         * @param componentIn index of the solved component
+         */
+        SolverTraceListener(Metrics metricsIn, int componentIn) {
+            metrics = metricsIn;
+            component = componentIn;
+        }
+
+        @Override
+        public void stepEnded(AbstractStepScope<Assignment> stepScope) {
+            // the construction heuristic only updates the best solution at the end of its phase
+            if (!(stepScope.getPhaseScope() instanceof ConstructionHeuristicPhaseScope) &&
+                    Boolean.TRUE.equals(stepScope.getBestScoreImproved())) {
+                addEvent(stepScope.getPhaseScope(), stepScope.getStepIndex(), stepScope.getScore());
+            }
+        }
+
+        @Override
+        public void phaseEnded(AbstractPhaseScope<Assignment> phaseScope) {
+            AbstractStepScope<Assignment> lastStepScope = phaseScope.getLastCompletedStepScope();
+            if (phaseScope instanceof ConstructionHeuristicPhaseScope && lastStepScope.getScore() != null) {
+                addEvent(phaseScope, lastStepScope.getStepIndex(), lastStepScope.getScore());
+            }
+        }
+
+        private void addEvent(AbstractPhaseScope<Assignment> phaseScope, int step, Score<?> score) {
+            String phase = getPhaseName(phaseScope);
+            long millis = phaseScope.getSolverScope().calculateTimeMillisSpentUpToNow();
+            long movesPerSecond = phaseScope.getSolverScope().getScoreCalculationCount() * 1000L / Math.max(millis, 1L);
+
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("component", component);
+            event.put("phase", phase);
+            event.put("step", step);
+            event.put("time_ms", millis);
+            event.put("best_score", score.toString());
+            event.put("moves_per_second", movesPerSecond);
+            metrics.addSolverEvent(event);
+
+            LOGGER.debug("Component {}, {} step {}: new best score {} after {}ms ({} moves/s)", component, phase, step,
+                    score, millis, movesPerSecond);
+        }
+    }
+
+    /**
+     * Stops a solver as soon as its best score reaches the upper bound of its component, as no better solution
+     * exists (see {@link AssignmentScoreCalculator#getUpperBound(Assignment)}). As the best solution is only
+     * replaced by strictly better ones, this does not change results.
+     */
+    private static class OptimalScoreListener extends PhaseLifecycleListenerAdapter<Assignment> {
+
+        /** The solver to stop. */
+        private final DefaultSolver<Assignment> solver;
+
+        /** Metrics of the run. */
+        private final Metrics metrics;
+
+        /** The best possible score. */
+        private final HardSoftScore upperBound;
+
+        /**
+         * Standard constructor.
+         *
+         * @param solverIn the solver to stop
+         * @param metricsIn metrics of the run
+         * @param upperBoundIn the best possible score
+         */
+        OptimalScoreListener(DefaultSolver<Assignment> solverIn, Metrics metricsIn, HardSoftScore upperBoundIn) {
+            solver = solverIn;
+            metrics = metricsIn;
+            upperBound = upperBoundIn;
+        }
+
+        @Override
+        public void stepEnded(AbstractStepScope<Assignment> stepScope) {
+            if (!(stepScope.getPhaseScope() instanceof ConstructionHeuristicPhaseScope) &&
+                    Boolean.TRUE.equals(stepScope.getBestScoreImproved())) {
+                terminateIfOptimal(stepScope.getScore());
+            }
+        }
+
+        @Override
+        public void phaseEnded(AbstractPhaseScope<Assignment> phaseScope) {
+            // the construction heuristic only updates the best solution at the end of its phase
+            AbstractStepScope<Assignment> lastStepScope = phaseScope.getLastCompletedStepScope();
+            if (phaseScope instanceof ConstructionHeuristicPhaseScope && lastStepScope.getScore() != null) {
+                terminateIfOptimal(lastStepScope.getScore());
+            }
+        }
+
+        private void terminateIfOptimal(Score<?> score) {
+            if (((HardSoftScore) score).compareTo(upperBound) >= 0 && solver.terminateEarly()) {
+                metrics.addCount("components_optimal", 1);
+                LOGGER.debug("Score {} is optimal, stopping", score);
+            }
+        }
+    }
+
+    /**
+     * Stops local search of a component after its share of the step and time limits, or as soon as its best score
+     * reaches its share of the best score limit (see {@link #getStepCountShare(SolverConfigBuilder, Assignment, int)}
+     * and following methods). The construction heuristic is never stopped, so that every component gets a complete
+     * solution.
+     */
+    private static class LimitsListener extends PhaseLifecycleListenerAdapter<Assignment> {
+
+        /** The solver to stop. */
+        private final DefaultSolver<Assignment> solver;
+
+        /** Metrics of the run. */
+        private final Metrics metrics;
+
+        /** Local search steps after which solving stops. */
+        private final int stepCountLimit;
+
+        /** Milliseconds since the solver started after which solving stops. */
+        private final long timeLimit;
+
+        /** Score after which solving stops, null for none. */
+        private final HardSoftScore bestScoreLimit;
+
+        /**
+         * Standard constructor.
+         *
+         * @param solverIn the solver to stop
+         * @param metricsIn metrics of the run
+         * @param stepCountLimitIn local search steps after which solving stops
+         * @param timeLimitIn milliseconds since the solver started after which solving stops
+         * @param bestScoreLimitIn score after which solving stops, null for none
+         */
+        LimitsListener(DefaultSolver<Assignment> solverIn, Metrics metricsIn, int stepCountLimitIn, long timeLimitIn,
+                HardSoftScore bestScoreLimitIn) {
+            solver = solverIn;
+            metrics = metricsIn;
+            stepCountLimit = stepCountLimitIn;
+            timeLimit = timeLimitIn;
+            bestScoreLimit = bestScoreLimitIn;
+        }
+
+        @Override
+        public void phaseStarted(AbstractPhaseScope<Assignment> phaseScope) {
+            // the construction heuristic might have used all the time, or reached the score
+            if (phaseScope instanceof LocalSearchPhaseScope) {
+                terminateIfLimitReached(phaseScope, 0, (HardSoftScore) phaseScope.getBestScore());
+            }
+        }
+
+        @Override
+        public void stepEnded(AbstractStepScope<Assignment> stepScope) {
+            if (stepScope.getPhaseScope() instanceof LocalSearchPhaseScope) {
+                HardSoftScore bestScore = Boolean.TRUE.equals(stepScope.getBestScoreImproved()) ?
+                    (HardSoftScore) stepScope.getScore() :
+                    null;
+                terminateIfLimitReached(stepScope.getPhaseScope(), stepScope.getStepIndex() + 1, bestScore);
+            }
+        }
+
+        private void terminateIfLimitReached(AbstractPhaseScope<Assignment> phaseScope, int steps,
+                HardSoftScore bestScore) {
+            boolean reached = steps >= stepCountLimit ||
+                    phaseScope.getSolverScope().calculateTimeMillisSpentUpToNow() >= timeLimit ||
+                    bestScoreLimit != null && bestScore != null && bestScore.compareTo(bestScoreLimit) >= 0;
+            if (reached && solver.terminateEarly()) {
+                metrics.addCount("components_limited", 1);
+                LOGGER.debug("Limit reached after {} steps, stopping", steps);
+            }
+        }
+    }
+
+    /**
+     * Returns the share of local search steps of a component, proportional to its number of Matches but
+     * never less than the steps without improvement after which search stops anyway, so that small components
+     * are still searched.
+     */
+    private static int getStepCountShare(SolverConfigBuilder solverConfig, Assignment component, int totalMatches) {
+        if (solverConfig.getStepCountLimit().isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        long stepCountLimit = solverConfig.getStepCountLimit().getAsInt();
+        long share = (stepCountLimit * component.getMatches().size() + totalMatches - 1) / totalMatches;
+        return (int) Math.max(share, solverConfig.getUnimprovedStepCountLimit());
+    }
+
+    /**
+     * Returns the share of time of a component, proportional to its number of Matches, in milliseconds since its
+     * solver started. Components solved one after the other take at most the time limit in total.
+     */
+    private static long getTimeShare(SolverConfigBuilder solverConfig, Assignment component, int totalMatches) {
+        return solverConfig.getTimeLimit()
+            .map(limit -> limit.toMillis() * component.getMatches().size() / totalMatches)
+            .orElse(Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns how much the score of components to solve can fall short of their upper bounds, for the whole problem
+     * to reach the best score limit. Components restored from a previous run keep their score.
+     */
+    private static HardSoftScore getScoreGap(HardSoftScore bestScoreLimit, List<Assignment> components,
+            Assignment[] solvedComponents) {
+        HardSoftScore result = bestScoreLimit.negate();
+        for (int i = 0; i < components.size(); i++) {
+            result = result.add(solvedComponents[i] != null ?
+                solvedComponents[i].getScore() :
+                AssignmentScoreCalculator.getUpperBound(components.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the share of the best score limit of a component: its upper bound minus a share of the score gap
+     * (see {@link #getScoreGap(HardSoftScore, List, Assignment[])}) proportional to its number of Matches. Shares are
+     * rounded up, so the whole problem reaches the limit if all components reach their share. Components that
+     * cannot reach their share are solved as if there was no limit.
+     *
+     * @return the score, null for no limit
+     */
+    private static HardSoftScore getBestScoreShare(HardSoftScore scoreGap, Assignment component, int totalMatches) {
+        if (scoreGap == null) {
+            return null;
+        }
+        long matches = component.getMatches().size();
+        HardSoftScore gapShare = HardSoftScore.of(
+                (int) Math.floorDiv(scoreGap.getHardScore() * matches, totalMatches),
+                (int) Math.floorDiv(scoreGap.getSoftScore() * matches, totalMatches));
+        return AssignmentScoreCalculator.getUpperBound(component).subtract(gapShare);
+    }
+
+    private static String getPhaseName(AbstractPhaseScope<Assignment> phaseScope) {
+        if (phaseScope instanceof ConstructionHeuristicPhaseScope) {
+            return "construction_heuristic";
+        }
+        if (phaseScope instanceof LocalSearchPhaseScope) {
+            return "local_search";
+        }
+        return phaseScope.getClass().getSimpleName();
+    }
+
+    /**
+     * Restores the previous solution of an unchanged component, unless it is no longer feasible.
+     */
+    private static boolean restore(InitialSolution previousSolution, Assignment component) {
+        // Matches that were not confirmed in the previous solution were unconfirmed
+        if (!previousSolution.apply(component)) {
+            return false;
+        }
+        component.getMatches().stream()
+            .filter(m -> m.confirmed == null)
+            .forEach(m -> m.confirmed = false);
+
+        AssignmentScoreCalculator calculator = new AssignmentScoreCalculator();
+        calculator.resetWorkingSolution(component);
+        HardSoftScore score = calculator.calculateScore();
+        boolean feasible = score.getHardScore() >= 0 && component.getMatches().stream()
+            .noneMatch(m -> m.confirmed && component.isConflictingMatchConfirmed(m));
+
+        if (!feasible) {
+            component.getMatches().forEach(m -> m.confirmed = null);
+            return false;
+        }
+        component.setScore(score);
+        return true;
+    }
+
+    private static Assignment solve(Solver<Assignment> solver, Assignment unsolved) {
+        solver.solve(unsolved);
+        Assignment solved = solver.getBestSolution();
 
         // show Penalty facts generated in Scores.drl using DroolsScoreDirector and re-calculating
-        // the score of the best solution because facts generated dynamically are not available outside of this object
+        // the score of the best solution because facts generated dynamically are not available outside of this object.
+        // This is only possible if Scores.drl is used, either as score calculator or to assert scores in tests
         if (LOGGER.isDebugEnabled()) {
-            logOneTwoPenalties(solver, result);
+            logOneTwoPenalties(solver, solved);
         }
+        return solved;
     }
 
     private static void logOneTwoPenalties(Solver<Assignment> solver, Assignment result) {
         // Make sure the runtime instances are of the correct types
-        if (!(solver instanceof DefaultSolver) || !(solver.getScoreDirectorFactory() instanceof DroolsScoreDirectorFactory)) {
+        if (!(solver instanceof DefaultSolver)) {
             return;
         }
 
         DefaultSolver<Assignment> defaultSolver = (DefaultSolver<Assignment>) solver;
-        DroolsScoreDirectorFactory<Assignment> directorFactory = (DroolsScoreDirectorFactory<Assignment>) defaultSolver.getScoreDirectorFactory();
+        ScoreDirectorFactory<Assignment> scoreDirectorFactory = defaultSolver.getScoreDirectorFactory();
+        if (!(scoreDirectorFactory instanceof DroolsScoreDirectorFactory) &&
+                scoreDirectorFactory instanceof AbstractScoreDirectorFactory) {
+            scoreDirectorFactory = ((AbstractScoreDirectorFactory<Assignment>) scoreDirectorFactory)
+                .getAssertionScoreDirectorFactory();
+        }
+        if (!(scoreDirectorFactory instanceof DroolsScoreDirectorFactory)) {
+            return;
+        }
+
+        DroolsScoreDirectorFactory<Assignment> directorFactory = (DroolsScoreDirectorFactory<Assignment>) scoreDirectorFactory;
         EnvironmentMode environmentMode = defaultSolver.getEnvironmentMode();
 
         // Build a new score director and re-evaluate the score
@@ -110,157 +602,42 @@ public class OptaPlanner {
     }
 
     /**
-     * Configures and returns an OptaPlanner solver.
-     *
-     * This method replaces the XML configuration file cited in OptaPlanner's documentation.
+     * Returns the compiled score rule base, building it on first use.
      *
-     * @return the solver
-     * @param testing true if running as a unit test, false otherwise
+     * @return the score rule base
      */
-    private Solver<Assignment> initSolver(boolean testing) {
-        // init basic objects
-        SolverFactory<Assignment> factory = SolverFactory.createEmpty();
-        SolverConfig config = factory.getSolverConfig();
-        config.setPhaseConfigList(new ArrayList<>());
-
-        /*
-         * Ensure results are reproducible across runs and JVMs
-         */
-        config.setEnvironmentMode(EnvironmentMode.REPRODUCIBLE);
-        config.setRandomType(RandomType.MERSENNE_TWISTER);
-        config.setRandomSeed(0L);
-
-        /*
-         * Declare solution and entity classes
-         */
-        config.setSolutionClass(Assignment.class);
-        config.setEntityClassList(List.of(Match.class));
-
-        /*
-         * Declare score type and file location
-         */
-        ScoreDirectorFactoryConfig score = new ScoreDirectorFactoryConfig();
-        score.setScoreDefinitionType(ScoreDefinitionType.HARD_SOFT);
-        score.setScoreDrlList(List.of("com/suse/matcher/rules/optaplanner/Scores.drl"));
-        config.setScoreDirectorFactoryConfig(score);
-
-        /*
-         * Construct an initial solution by visiting all possible Matches one by one, in order,
-         * and changing that Match's confirmed property from the initial null value first to true and
-         * then to false. Take whichever of the two has higher score and move on to the next Match
-         * (jargon for this is "first fit").
-         *
-         * Because of how the score is calculated, moving a Match's confirmed property from null to either
-         * true or false can only make hard score go down and/or the soft score go up (see Scores.drl).
-         *
-         * At the end of this process (called a Construction Heuristic or CH step) the hard score cannot
-         * be negative and the soft score is typically positive (worst case is all Match.confirmed being set to
-         * false, which yields 0/0).
-         *
-         * We use a custom Move Filter (ConflictMatchMoveFilter) to avoid moves that would result in conflicting
-         * Matches to be confirmed.
-         */
-        ConstructionHeuristicPhaseConfig constructionHeuristic = new ConstructionHeuristicPhaseConfig();
-        QueuedEntityPlacerConfig entityPlacer = new QueuedEntityPlacerConfig();
-        EntitySelectorConfig placerEntitySelector = new EntitySelectorConfig();
-        placerEntitySelector.setId("entitySelector");
-        placerEntitySelector.setCacheType(SelectionCacheType.PHASE);
-        placerEntitySelector.setSelectionOrder(SelectionOrder.ORIGINAL);
-        entityPlacer.setEntitySelectorConfig(placerEntitySelector);
-
-        ChangeMoveSelectorConfig changeMove = new ChangeMoveSelectorConfig();
-
-        EntitySelectorConfig moveEntitySelector = new EntitySelectorConfig();
-        moveEntitySelector.setMimicSelectorRef("entitySelector");
-        changeMove.setEntitySelectorConfig(moveEntitySelector);
-
-        ValueSelectorConfig valueSelector = new ValueSelectorConfig();
-        valueSelector.setCacheType(SelectionCacheType.PHASE);
-        valueSelector.setSelectionOrder(SelectionOrder.ORIGINAL);
-        changeMove.setValueSelectorConfig(valueSelector);
-
-        changeMove.setFilterClassList(List.of(ConflictMatchMoveFilter.class));
-        entityPlacer.setMoveSelectorConfigList(List.of(changeMove));
-        constructionHeuristic.setEntityPlacerConfig(entityPlacer);
-        config.getPhaseConfigList().add(constructionHeuristic);
-
-        /*
-         * Starting from the initial solution from the CH phase, explore other solutions by flipping some
-         * Match.confirmed boolean values. A change from a certain solution to a new solution is called a move,
-         * moves are repeated in iterations called steps.
-         *
-         * Sequences of steps will hopefully get to some new solutions that have a better score.
-         *
-         * For more information about how those moves are generated see the MatchMoveIteratorFactory class.
-         */
-        MoveIteratorFactoryConfig move = new MoveIteratorFactoryConfig();
-        move.setCacheType(SelectionCacheType.JUST_IN_TIME);
-        move.setSelectionOrder(SelectionOrder.RANDOM);
-        move.setMoveIteratorFactoryClass(MatchMoveIteratorFactory.class);
-        move.setSelectedCountLimit(10_000L);
-
-        MoveIteratorFactoryConfig swapMove = new MoveIteratorFactoryConfig();
-        swapMove.setCacheType(SelectionCacheType.JUST_IN_TIME);
-        swapMove.setSelectionOrder(SelectionOrder.RANDOM);
-        swapMove.setMoveIteratorFactoryClass(MatchSwapMoveIteratorFactory.class);
-        swapMove.setSelectedCountLimit(10_000L);
-
-        /*
-         * Union move uses both of the above move implementations:
-         * both moves alternate within the step (in random fashion).
-         */
-        UnionMoveSelectorConfig unionMoveConfig = new UnionMoveSelectorConfig();
-        unionMoveConfig.setMoveSelectorConfigList(List.of(move, swapMove));
-
-        LocalSearchPhaseConfig search = new LocalSearchPhaseConfig();
-        search.setMoveSelectorConfig(unionMoveConfig);
-
-        /*
-         * Among generated moves, don't accept moves that were already attempted in the last
-         * 50 steps (colloquially called "taboo").
-         *
-         * This prevents us to run in circles, repeating the same moves over and over (provided
-         * the circle is shorter than 50 steps).
-         */
-        AcceptorConfig acceptor = new AcceptorConfig();
-        acceptor.setMoveTabuSize(50);
-        search.setAcceptorConfig(acceptor);
-
-        /*
-         * As accepted moves might still be a lot, don't evaluate more than 5_000 in any case.
-         */
-        LocalSearchForagerConfig forager = new LocalSearchForagerConfig();
-        forager.setAcceptedCountLimit(5_000);
-        search.setForagerConfig(forager);
+    static KieBase getScoreKieBase() {
+        return ScoreKieBaseHolder.INSTANCE;
+    }
 
-        /*
-         * Continue stepping and keep track of the overall best solution found so far.
-         *
-         * At some point we have to stop stepping, and we do so when:
-         *   - we stepped 1000 times with no score improvement (typically)
-         *   - we stepped 15_000 times (when all else fails)
-         *   - we spent 1 hour finding the solution
-         */
-        TerminationConfig termination = new TerminationConfig();
-        termination.setUnimprovedStepCountLimit(1000);
-        termination.setStepCountLimit(15_000);
-        termination.setHoursSpentLimit(1L);
-        search.setTerminationConfig(termination);
-
-        /*
-         * Tweak parameters in unit tests, which deal with much less data and need
-         * to run faster. These can only degrade results, so if a unit test passes
-         * in test mode it will pass in production mode too.
-         * Also activate OptaPlanner full assertions to catch more issues.
-         */
-        if (testing) {
-            termination.setUnimprovedStepCountLimit(12);
-            config.setEnvironmentMode(EnvironmentMode.FULL_ASSERT);
+    /**
+     * Lazily compiles score rules the first time they are needed (initialization on demand holder idiom).
+     *
+     * This is equivalent to setting the DRL file in the score configuration, but does not compile rules again
+     * for every solver, nor at every start of the program (see {@link KieBaseCache}).
+     */
+    private static class ScoreKieBaseHolder {
+
+        /** The compiled score rule base. */
+        private static final KieBase INSTANCE = KieBaseCache.get("scores", List.of(SCORE_DRL),
+                ScoreKieBaseHolder::buildKieBase);
+
+        private static KieBase buildKieBase() {
+            KieServices services = KieServices.Factory.get();
+            KieFileSystem kfs = services.newKieFileSystem();
+            kfs.write(services.getResources().newClassPathResource(SCORE_DRL, "UTF-8"));
+
+            KieModuleModel module = services.newKieModuleModel();
+            module.setConfigurationProperty(PropertySpecificOption.PROPERTY_NAME, PropertySpecificOption.ALLOWED.toString());
+            kfs.writeKModuleXML(module.toXML());
+
+            KieBuilder builder = services.newKieBuilder(kfs).buildAll();
+            if (builder.getResults().hasMessages(Level.ERROR)) {
+                throw new IllegalStateException("Unable to compile score rules: " + builder.getResults().getMessages(Level.ERROR));
+            }
+            return services.newKieContainer(builder.getKieModule().getReleaseId())
+                .newKieBase(services.newKieBaseConfiguration());
         }
-
-        // return solver
-        config.getPhaseConfigList().add(search);
-        return factory.buildSolver();
     }
 
     /**
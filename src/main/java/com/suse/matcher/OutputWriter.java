@@ -9,8 +9,11 @@ import com.suse.matcher.facts.Product;
 import com.suse.matcher.facts.Subscription;
 import com.suse.matcher.facts.System;
 import com.suse.matcher.facts.Timestamp;
-import com.suse.matcher.json.JsonMatch;
+import com.suse.matcher.json.JsonOutput;
 import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.MatchResult;
+
+import com.google.gson.Gson;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
@@ -22,15 +25,20 @@ import org.apache.logging.log4j.Logger;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,9 +59,13 @@ public class OutputWriter {
     private static final String JSON_INPUT_FILE = "input.json";
     private static final String JSON_OUTPUT_FILE = "output.json";
     private static final String JSON_OUTPUT_ALL_FILE = "output-all.json";
+    private static final String BINARY_INPUT_FILE = "input.bin";
+    private static final String BINARY_OUTPUT_FILE = "output.bin";
     private static final String CSV_SUBSCRIPTION_REPORT_FILE = "subscription_report.csv";
     private static final String CSV_UNMATCHED_PRODUCT_REPORT_FILE = "unmatched_product_report.csv";
     private static final String CSV_MESSAGE_REPORT_FILE = "message_report.csv";
+    private static final String JSON_METRICS_FILE = "metrics.json";
+    private static final String NDJSON_SOLVER_TRACE_FILE = "solver_trace.ndjson";
 
     /** The output directory. */
     private final String outputDirectory;
@@ -61,14 +73,50 @@ public class OutputWriter {
     /** The CSV format. */
     private CSVFormat csvFormat;
 
+    /** The format of output documents. */
+    private final Format format;
+
     /**
-     * Instantiates a new writer.
+     * Format of input or output documents.
+     */
+    public enum Format {
+        /** JSON, see {@link JsonIO}. */
+        JSON,
+        /** Binary, see {@link BinaryIO}. */
+        BINARY;
+
+        /**
+         * Returns the format of a file, based on its extension.
+         *
+         * @param fileName the file name
+         * @return BINARY for .bin files, JSON otherwise
+         */
+        public static Format of(String fileName) {
+            return fileName.endsWith(".bin") ? BINARY : JSON;
+        }
+    }
+
+    /**
+     * Instantiates a new writer of JSON output documents.
      *
      * @param outputDirectoryIn an output directory path. If empty, current directory is used
      * as default
      * @param delimiter an optional CSV delimiter. If empty, comma is used as default
      */
     public OutputWriter(Optional<String> outputDirectoryIn, Optional<Character> delimiter) {
+        this(outputDirectoryIn, delimiter, Format.JSON);
+    }
+
+    /**
+     * Instantiates a new writer.
+     *
+     * @param outputDirectoryIn an output directory path. If empty, current directory is used
+     * as default
+     * @param delimiter an optional CSV delimiter. If empty, comma is used as default
+     * @param formatIn the format of output documents
+     */
+    public OutputWriter(Optional<String> outputDirectoryIn, Optional<Character> delimiter, Format formatIn) {
+        format = formatIn;
         outputDirectory = outputDirectoryIn.orElse(".");
         csvFormat = CSVFormat.EXCEL;
         delimiter.ifPresent(character -> csvFormat = csvFormat.withDelimiter(character));
@@ -82,10 +130,23 @@ public class OutputWriter {
      * @throws IOException Signals that an I/O exception has occurred.
      */
     public void writeOutput(Assignment assignment, Optional<Level> logLevel) throws IOException {
-        writeJsonOutput(assignment);
+        Metrics metrics = assignment.getMetrics();
+        long start = java.lang.System.currentTimeMillis();
+        if (format == Format.BINARY) {
+            writeBinaryOutput(assignment);
+        }
+        else {
+            writeJsonOutput(assignment);
+        }
+        start = addTiming(metrics, "writer.output", start);
         writeCSVSubscriptionReport(assignment);
+        start = addTiming(metrics, "writer.subscription_report", start);
         writeCSVUnmatchedProductReport(assignment);
+        start = addTiming(metrics, "writer.unmatched_product_report", start);
         writeCSVMessageReport(assignment);
+        addTiming(metrics, "writer.message_report", start);
+        writeMetrics(metrics);
+        writeSolverTrace(metrics);
 
         try {
             Files.deleteIfExists(Path.of(outputDirectory, JSON_OUTPUT_ALL_FILE));
@@ -97,6 +158,45 @@ public class OutputWriter {
         logLevel.filter(l -> l.isMoreSpecificThan(Level.DEBUG)).ifPresent(l -> writeAllFacts(assignment));
     }
 
+    /**
+     * Adds the time elapsed since start to metrics.
+     *
+     * @return the current time
+     */
+    private static long addTiming(Metrics metrics, String name, long start) {
+        long now = java.lang.System.currentTimeMillis();
+        metrics.addTiming(name, now - start);
+        return now;
+    }
+
+    /**
+     * Writes timings and counters of the run in JSON format.
+     *
+     * @param metrics the metrics
+     * @throws IOException if the metrics file cannot be written
+     */
+    public void writeMetrics(Metrics metrics) throws IOException {
+        Files.writeString(Path.of(outputDirectory, JSON_METRICS_FILE), new JsonIO().toJson(metrics.toMap()),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes new best scores found by the solver, one JSON object per line.
+     *
+     * @param metrics the metrics
+     * @throws IOException if the trace file cannot be written
+     */
+    public void writeSolverTrace(Metrics metrics) throws IOException {
+        Gson gson = new Gson();
+        try (Writer writer = Files.newBufferedWriter(Path.of(outputDirectory, NDJSON_SOLVER_TRACE_FILE),
+                StandardCharsets.UTF_8)) {
+            for (Map<String, Object> event : metrics.getSolverEvents()) {
+                writer.write(gson.toJson(event));
+                writer.write('\n');
+            }
+        }
+    }
+
     private void writeAllFacts(Assignment assignment) {
         try (PrintWriter writer = new PrintWriter(new File(outputDirectory, JSON_OUTPUT_ALL_FILE))) {
             JsonIO io = new JsonIO();
@@ -117,6 +217,20 @@ public class OutputWriter {
         Files.writeString(Path.of(outputDirectory, JSON_INPUT_FILE), input, Charset.defaultCharset());
     }
 
+    /**
+     * Copies the raw input file while it is being read, without holding it in memory.
+     *
+     * @param input the input stream
+     * @param inputFormat the format of the input document
+     * @return a stream reading from the input stream and writing everything read to the input file. Closing it
+     * copies any bytes left unread, then closes the input stream and the input file
+     * @throws IOException if the input file cannot be created
+     */
+    public InputStream teeInput(InputStream input, Format inputFormat) throws IOException {
+        String fileName = inputFormat == Format.BINARY ? BINARY_INPUT_FILE : JSON_INPUT_FILE;
+        return new TeeInputStream(input, Files.newOutputStream(Path.of(outputDirectory, fileName)));
+    }
+
     /**
      * Writes the raw output file in JSON format.
      *
@@ -126,10 +240,29 @@ public class OutputWriter {
     public void writeJsonOutput(Assignment assignment) throws FileNotFoundException {
         try (PrintWriter writer = new PrintWriter(new File(outputDirectory, JSON_OUTPUT_FILE))) {
             JsonIO io = new JsonIO();
-            writer.write(io.toJson(FactConverter.convertToOutput(assignment)));
+            writer.write(io.toJson(convertToOutput(assignment)));
+        }
+    }
+
+    /**
+     * Writes the raw output file in binary format.
+     *
+     * @param assignment output from {@link Matcher}
+     * @throws IOException if the output file cannot be written
+     */
+    public void writeBinaryOutput(Assignment assignment) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(Path.of(outputDirectory, BINARY_OUTPUT_FILE))) {
+            new BinaryIO().writeOutput(convertToOutput(assignment), stream);
         }
     }
 
+    private static JsonOutput convertToOutput(Assignment assignment) {
+        long start = java.lang.System.currentTimeMillis();
+        JsonOutput output = FactConverter.convertToOutput(assignment);
+        addTiming(assignment.getMetrics(), "output_conversion", start);
+        return output;
+    }
+
     /**
      * Writes the CSV subscription report.
      *
@@ -167,9 +300,11 @@ public class OutputWriter {
         });
 
         // compute cents by subscription id
+        MatchResult result = assignment.getMatchResult();
         Map<Long, Integer> matchedCents = new HashMap<>();
-        FactConverter.getMatches(assignment)
-            .forEach(m -> matchedCents.merge(m.getSubscriptionId(), m.getCents(), Math::addExact));
+        for (int i = 0; i < result.size(); i++) {
+            matchedCents.merge(result.getSubscriptionId(i), result.getCents(i), Math::addExact);
+        }
 
         // update output
         matchedCents.forEach((subscriptionId, cents) -> {
@@ -201,63 +336,48 @@ public class OutputWriter {
      * @throws IOException if an I/O error occurs
      */
     public void writeCSVUnmatchedProductReport(Assignment assignment) throws IOException {
-        Collection<JsonMatch> confirmedMatchFacts = FactConverter.getMatches(assignment);
-
-        List<System> systems = assignment.getProblemFactStream(System.class)
-                .sorted(Comparator.comparing(a -> a.id))
-                .collect(Collectors.toList());
-
-        Collection<InstalledProduct> installedProducts = assignment.getProblemFacts(InstalledProduct.class);
-        Collection<Product> products = assignment.getProblemFacts(Product.class);
-
-        // prepare map from (system id, product id) to Match object
-        Map<Pair<Long, Long>, JsonMatch> matchMap = new HashMap<>();
-        for (JsonMatch match : confirmedMatchFacts) {
-            matchMap.put(Pair.of(match.getSystemId(), match.getProductId()), match);
+        Map<Long, System> systemsById = assignment.getProblemFactIndex(System.class, s -> s.id);
+        Map<Long, Product> productsById = assignment.getProblemFactIndex(Product.class, p -> p.id);
+
+        // prepare set of matched (system id, product id) couples
+        MatchResult result = assignment.getMatchResult();
+        Set<Pair<Long, Long>> matchedInstalledProducts = new HashSet<>();
+        for (int i = 0; i < result.size(); i++) {
+            matchedInstalledProducts.add(Pair.of(result.getSystemId(i), result.getProductId(i)));
         }
 
+        // create map of product id -> set of systems ids with this product and filter out successful matches
+        Map<Long, Set<Long>> unmatchedProductSystems = assignment.getProblemFactStream(InstalledProduct.class)
+                .filter(ip -> !matchedInstalledProducts.contains(Pair.of(ip.systemId, ip.productId)))
+                .collect(Collectors.groupingBy(
+                    InstalledProduct::getProductId,
+                    Collectors.mapping(InstalledProduct::getSystemId, Collectors.toSet())
+                ));
+
         // prepare header
         csvFormat = csvFormat.withHeader(CSVOutputUnmatchedProduct.CSV_HEADER);
 
         // write CSV file
         try (FileWriter writer = new FileWriter(new File(outputDirectory, CSV_UNMATCHED_PRODUCT_REPORT_FILE));
              CSVPrinter printer = new CSVPrinter(writer, csvFormat)) {
-            // create map of product id -> set of systems ids with this product and filter out successful matches
-            Map<Long, Set<Long>> unmatchedProductSystems = installedProducts.stream()
-                    .filter(sp -> matchMap.get(Pair.of(sp.systemId, sp.productId)) == null)
-                    .collect(Collectors.groupingBy(
-                        InstalledProduct::getProductId,
-                        Collectors.mapping(InstalledProduct::getSystemId, Collectors.toSet())
-                    ));
-
-            List<CSVOutputUnmatchedProduct> unmatchedProductsCsvs = unmatchedProductSystems.entrySet().stream()
-                    .map(e -> new CSVOutputUnmatchedProduct(
-                            productNameById(products, e.getKey()),
-                            e.getValue().stream().flatMap(sid -> systemById(systems, sid).stream()).collect(Collectors.toList())))
-                    .collect(Collectors.toList());
-
-            // cant use java 8 forEach as printer throws a checked exception
-            for (CSVOutputUnmatchedProduct csv : unmatchedProductsCsvs) {
-                csv.getUnmatchedSystems().sort((Comparator.comparing(s -> Objects.requireNonNullElse(s.name, ""))));
-                printer.printRecords(csv.getCSVRows());
+            for (Map.Entry<Long, Set<Long>> entry : unmatchedProductSystems.entrySet()) {
+                List<System> unmatchedSystems = entry.getValue().stream()
+                        .map(systemsById::get)
+                        .filter(Objects::nonNull)
+                        .sorted(Comparator.comparing(s -> Objects.requireNonNullElse(s.name, "")))
+                        .collect(Collectors.toList());
+
+                Product product = productsById.get(entry.getKey());
+                String productName = product != null && product.name != null ? product.name :
+                        "Unknown product (" + entry.getKey() + ")";
+                for (System system : unmatchedSystems) {
+                    printer.printRecord(CSVOutputUnmatchedProduct.getCSVRow(productName, system));
+                    productName = "";
+                }
             }
         }
     }
 
-    private Optional<System> systemById(Collection<System> systems, Long systemId) {
-        return systems.stream()
-                .filter(s -> Objects.equals(systemId, s.getId()))
-                .findFirst();
-    }
-
-    private String productNameById(Collection<Product> products, Long productId) {
-        return products.stream()
-                .filter(p -> p.id.equals(productId))
-                .map(p -> p.name)
-                .findFirst()
-                .orElse("Unknown product (" + productId + ")");
-    }
-
     /**
      * Writes the CSV message report.
      *
@@ -284,4 +404,70 @@ public class OutputWriter {
         }
     }
 
+
+    /**
+     * Copies all bytes read from an input stream to an output stream.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+
+        /** The copy. */
+        private final OutputStream copy;
+
+        /**
+         * Standard constructor.
+         *
+         * @param in the input stream
+         * @param copyIn the output stream to copy read bytes to
+         */
+        TeeInputStream(InputStream in, OutputStream copyIn) {
+            super(in);
+            copy = copyIn;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                copy.write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skipped bytes must be copied too
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // copy anything left after the end of the JSON document
+                byte[] buffer = new byte[8192];
+                while (read(buffer, 0, buffer.length) >= 0) {
+                    continue;
+                }
+                super.close();
+            }
+            finally {
+                copy.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,235 @@
+package com.suse.matcher;
+
+import com.suse.matcher.facts.Subscription;
+import com.suse.matcher.facts.Subscription.Policy;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Known SUSE part numbers and the {@link Subscription} attributes they imply.
+ *
+ * Data is loaded once from a CSV resource into an immutable map and is used to fill in
+ * subscription facts before they are handed to the rule engine.
+ */
+public class PartNumberCatalog {
+
+    /** Classpath location of the catalog data. */
+    private static final String RESOURCE = "part_numbers.csv";
+
+    /** Value of the quantity multiplier column meaning "unlimited quantity". */
+    private static final String UNLIMITED = "unlimited";
+
+    /**
+     * Attributes of one part number.
+     */
+    public static class Entry {
+
+        /** Virtualization policy. */
+        private final Policy policy;
+
+        /** Support level identifier, null if not known. */
+        private final String supportLevel;
+
+        /** Populated CPU sockets or IFLs, null for "instance subscriptions". */
+        private final Integer cpus;
+
+        /** Can this subscription be used multiple times on the same system? */
+        private final boolean stackable;
+
+        /** Does this subscription on its own represent a hard bundle? */
+        private final boolean singleSubscriptionHardBundle;
+
+        /** Factor the input quantity has to be multiplied by, null if quantity is not affected. */
+        private final Integer quantityMultiplier;
+
+        /** True if subscriptions with this part number have an unlimited quantity. */
+        private final boolean unlimitedQuantity;
+
+        /**
+         * Standard constructor.
+         *
+         * @param policyIn the virtualization policy
+         * @param supportLevelIn the support level, null if not known
+         * @param cpusIn the CPU count, null for "instance subscriptions"
+         * @param stackableIn true if stackable
+         * @param singleSubscriptionHardBundleIn true if the subscription on its own represents a hard bundle
+         * @param quantityMultiplierIn the quantity multiplier, null if quantity is not affected
+         * @param unlimitedQuantityIn true if quantity is unlimited
+         */
+        public Entry(Policy policyIn, String supportLevelIn, Integer cpusIn, boolean stackableIn,
+                boolean singleSubscriptionHardBundleIn, Integer quantityMultiplierIn, boolean unlimitedQuantityIn) {
+            policy = policyIn;
+            supportLevel = supportLevelIn;
+            cpus = cpusIn;
+            stackable = stackableIn;
+            singleSubscriptionHardBundle = singleSubscriptionHardBundleIn;
+            quantityMultiplier = quantityMultiplierIn;
+            unlimitedQuantity = unlimitedQuantityIn;
+        }
+
+        /**
+         * Gets the virtualization policy.
+         *
+         * @return the virtualization policy
+         */
+        public Policy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Gets the support level.
+         *
+         * @return the support level, null if not known
+         */
+        public String getSupportLevel() {
+            return supportLevel;
+        }
+
+        /**
+         * Gets the CPU count.
+         *
+         * @return the CPU count, null for "instance subscriptions"
+         */
+        public Integer getCpus() {
+            return cpus;
+        }
+
+        /**
+         * Returns true if this subscription can be used multiple times on the same system.
+         *
+         * @return true if stackable
+         */
+        public boolean isStackable() {
+            return stackable;
+        }
+
+        /**
+         * Returns true if this subscription on its own represents a hard bundle.
+         *
+         * @return true if this is a single subscription hard bundle
+         */
+        public boolean isSingleSubscriptionHardBundle() {
+            return singleSubscriptionHardBundle;
+        }
+
+        /**
+         * Computes the effective quantity of a subscription with this part number.
+         *
+         * @param quantity the quantity as found in input data
+         * @return the effective quantity
+         */
+        public Integer adjustQuantity(Integer quantity) {
+            if (unlimitedQuantity) {
+                return Integer.MAX_VALUE;
+            }
+            if (quantityMultiplier != null && quantity != null) {
+                return quantity * quantityMultiplier;
+            }
+            return quantity;
+        }
+    }
+
+    private PartNumberCatalog() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Fills in a subscription's part number dependent attributes, if the part number is known.
+     *
+     * @param subscription the subscription
+     */
+    public static void fillIn(Subscription subscription) {
+        lookup(subscription.partNumber).ifPresent(entry -> {
+            subscription.policy = entry.policy;
+            if (entry.supportLevel != null) {
+                subscription.supportLevel = entry.supportLevel;
+            }
+            if (entry.cpus != null) {
+                subscription.cpus = entry.cpus;
+            }
+            subscription.stackable = entry.stackable;
+            if (entry.singleSubscriptionHardBundle) {
+                subscription.singleSubscriptionHardBundle = true;
+            }
+            subscription.quantity = entry.adjustQuantity(subscription.quantity);
+        });
+    }
+
+    /**
+     * Looks up attributes for a part number.
+     *
+     * @param partNumber the part number
+     * @return the attributes, if the part number is known
+     */
+    public static Optional<Entry> lookup(String partNumber) {
+        return partNumber == null ? Optional.empty() : Optional.ofNullable(getEntries().get(partNumber));
+    }
+
+    /**
+     * Returns all known part numbers with their attributes.
+     *
+     * @return an immutable map from part number to attributes
+     */
+    public static Map<String, Entry> getEntries() {
+        return EntriesHolder.ENTRIES;
+    }
+
+    /**
+     * Lazily loads catalog data the first time it is needed (initialization on demand holder idiom).
+     */
+    private static class EntriesHolder {
+
+        /** Map from part number to attributes. */
+        private static final Map<String, Entry> ENTRIES = load();
+
+        private static Map<String, Entry> load() {
+            InputStream stream = PartNumberCatalog.class.getResourceAsStream(RESOURCE);
+            if (stream == null) {
+                throw new IllegalStateException("Unable to find part number catalog " + RESOURCE);
+            }
+
+            Map<String, Entry> result = new HashMap<>();
+            try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+                    CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+                for (CSVRecord record : parser) {
+                    String quantityMultiplier = record.get("quantity_multiplier");
+                    Entry entry = new Entry(
+                        Policy.valueOf(record.get("policy")),
+                        emptyToNull(record.get("support_level")),
+                        Optional.ofNullable(emptyToNull(record.get("cpus"))).map(Integer::valueOf).orElse(null),
+                        Boolean.parseBoolean(record.get("stackable")),
+                        Boolean.parseBoolean(record.get("single_subscription_hard_bundle")),
+                        quantityMultiplier.isEmpty() || quantityMultiplier.equals(UNLIMITED) ?
+                            null :
+                            Integer.valueOf(quantityMultiplier),
+                        quantityMultiplier.equals(UNLIMITED)
+                    );
+
+                    if (result.put(record.get("part_number"), entry) != null) {
+                        throw new IllegalStateException("Duplicate part number in catalog: " + record.get("part_number"));
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Unable to load part number catalog", e);
+            }
+            return Map.copyOf(result);
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
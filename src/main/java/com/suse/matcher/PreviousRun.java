@@ -0,0 +1,212 @@
+package com.suse.matcher;
+
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonMatch;
+import com.suse.matcher.json.JsonOutput;
+import com.suse.matcher.json.JsonProduct;
+import com.suse.matcher.json.JsonSubscription;
+import com.suse.matcher.json.JsonSystem;
+import com.suse.matcher.json.JsonVirtualizationGroup;
+import com.suse.matcher.solver.Assignment;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Input and output of a previous run, used to avoid solving again parts of the problem that did not change.
+ *
+ * Systems and subscriptions are considered changed if they were added, removed or modified, or if they relate to
+ * modified products, virtualization groups or pinned matches. Subscriptions which started or expired between the two
+ * runs also count as changed. As subscriptions with the same part number can be aggregated or merged in hard bundles,
+ * a change in one subscription marks all others with its part number too. Finally, systems and subscriptions that
+ * were matched together in the previous output are marked as changed if either one is.
+ *
+ * Parts of the problem (see {@link Decomposer}) without changed systems or subscriptions have the same facts as in the
+ * previous run, so their previous solution can be restored instead of solving them again. Changed parts are solved
+ * again, starting from the previous solution.
+ *
+ * Only solving is incremental: rule-based deduction (see {@link Drools}) always runs in full on the current input, in
+ * a new session. Rules insert deduced facts unconditionally, so they cannot be retracted when only part of the input
+ * changes. Run time on mostly unchanged inputs is therefore bound by deduction rather than by optimization.
+ */
+public class PreviousRun {
+
+    /** Ids of changed systems. */
+    private final Set<Long> changedSystemIds = new HashSet<>();
+
+    /** Ids of changed subscriptions. */
+    private final Set<Long> changedSubscriptionIds = new HashSet<>();
+
+    /** Matches of the previous output. */
+    private final InitialSolution initialSolution;
+
+    /**
+     * Standard constructor.
+     *
+     * @param previousInput input of the previous run
+     * @param previousOutput output of the previous run
+     * @param input input of the current run
+     */
+    public PreviousRun(JsonInput previousInput, JsonOutput previousOutput, JsonInput input) {
+        initialSolution = new InitialSolution(previousOutput);
+
+        // added, removed or modified systems and subscriptions
+        addChanged(changedSystemIds, previousInput.getSystems(), input.getSystems(), JsonSystem::getId,
+                s -> Arrays.asList(s.getName(), s.getCpus(), s.getPhysical(),
+                        s.getVirtualHost(), s.getVirtualSystemIds(), s.getProductIds()));
+        addChanged(changedSubscriptionIds, previousInput.getSubscriptions(), input.getSubscriptions(),
+                JsonSubscription::getId,
+                s -> Arrays.asList(s.getPartNumber(), s.getName(),
+                        s.getQuantity(), s.getStartDate(),
+                        s.getEndDate(), s.getSccUsername(), s.getProductIds()));
+
+        // guests of changed hosts
+        Stream.of(previousInput, input)
+            .flatMap(i -> i.getSystems().stream())
+            .filter(s -> changedSystemIds.contains(s.getId()))
+            .forEach(s -> changedSystemIds.addAll(s.getVirtualSystemIds()));
+
+        // members of changed virtualization groups
+        Set<Long> changedGroupIds = new HashSet<>();
+        addChanged(changedGroupIds, previousInput.getVirtualizationGroups(), input.getVirtualizationGroups(),
+                JsonVirtualizationGroup::getId,
+                g -> Arrays.asList(g.getName(), g.getType(), g.getVirtualGuestIds()));
+        Stream.of(previousInput, input)
+            .flatMap(i -> i.getVirtualizationGroups().stream())
+            .filter(g -> changedGroupIds.contains(g.getId()))
+            .forEach(g -> changedSystemIds.addAll(g.getVirtualGuestIds()));
+
+        // systems and subscriptions with changed products
+        Set<Long> changedProductIds = new HashSet<>();
+        addChanged(changedProductIds, previousInput.getProducts(), input.getProducts(), JsonProduct::getId,
+                p -> Arrays.asList(p.getName(), p.getProductClass(),
+                        p.getFree(), p.getBase()));
+        if (!changedProductIds.isEmpty()) {
+            Stream.of(previousInput, input)
+                .flatMap(i -> i.getSystems().stream())
+                .filter(s -> s.getProductIds().stream().anyMatch(changedProductIds::contains))
+                .forEach(s -> changedSystemIds.add(s.getId()));
+            Stream.of(previousInput, input)
+                .flatMap(i -> i.getSubscriptions().stream())
+                .filter(s -> s.getProductIds().stream().anyMatch(changedProductIds::contains))
+                .forEach(s -> changedSubscriptionIds.add(s.getId()));
+        }
+
+        // systems and subscriptions in changed pinned matches
+        Set<List<Long>> previousPins = pins(previousInput);
+        Set<List<Long>> pins = pins(input);
+        Stream.concat(previousPins.stream(), pins.stream())
+            .filter(p -> !previousPins.contains(p) || !pins.contains(p))
+            .forEach(p -> {
+                changedSystemIds.add(p.get(0));
+                changedSubscriptionIds.add(p.get(1));
+            });
+
+        // subscriptions which started or expired
+        for (JsonSubscription subscription : input.getSubscriptions()) {
+            if (isActive(subscription, previousInput.getTimestamp()) != isActive(subscription, input.getTimestamp())) {
+                changedSubscriptionIds.add(subscription.getId());
+            }
+        }
+
+        // subscriptions with the same part number as changed ones
+        Set<String> changedPartNumbers = Stream.of(previousInput, input)
+            .flatMap(i -> i.getSubscriptions().stream())
+            .filter(s -> changedSubscriptionIds.contains(s.getId()))
+            .map(JsonSubscription::getPartNumber)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        Stream.of(previousInput, input)
+            .flatMap(i -> i.getSubscriptions().stream())
+            .filter(s -> changedPartNumbers.contains(s.getPartNumber()))
+            .forEach(s -> changedSubscriptionIds.add(s.getId()));
+
+        // systems and subscriptions previously matched with changed ones
+        Set<Long> systemIds = new HashSet<>(changedSystemIds);
+        Set<Long> subscriptionIds = new HashSet<>(changedSubscriptionIds);
+        for (JsonMatch match : previousOutput.getMatches()) {
+            if (systemIds.contains(match.getSystemId()) || subscriptionIds.contains(match.getSubscriptionId())) {
+                changedSystemIds.add(match.getSystemId());
+                changedSubscriptionIds.add(match.getSubscriptionId());
+            }
+        }
+    }
+
+    /**
+     * Returns true if a part of the problem has no changed systems or subscriptions.
+     *
+     * @param component a part of the problem, as returned by {@link Decomposer#split(Assignment)}
+     * @return true if the part did not change since the previous run
+     */
+    public boolean isUnchanged(Assignment component) {
+        return component.getProblemFactStream(PotentialMatch.class)
+            .noneMatch(m -> changedSystemIds.contains(m.systemId) || changedSubscriptionIds.contains(m.subscriptionId));
+    }
+
+    /**
+     * Returns matches of the previous output, to restore unchanged parts of the problem or as a starting point
+     * for changed ones.
+     *
+     * @return the previous matches
+     */
+    public InitialSolution getInitialSolution() {
+        return initialSolution;
+    }
+
+    /**
+     * Returns the number of changed systems.
+     *
+     * @return the number of changed systems
+     */
+    public int getChangedSystemCount() {
+        return changedSystemIds.size();
+    }
+
+    /**
+     * Returns the number of changed subscriptions.
+     *
+     * @return the number of changed subscriptions
+     */
+    public int getChangedSubscriptionCount() {
+        return changedSubscriptionIds.size();
+    }
+
+    private static <T> void addChanged(Set<Long> changedIds, List<T> previousItems, List<T> items,
+            Function<T, Long> id, Function<T, List<Object>> content) {
+        Map<Long, List<Object>> previousContents = previousItems.stream()
+            .collect(Collectors.toMap(id, content, (a, b) -> a));
+        Map<Long, List<Object>> contents = items.stream()
+            .collect(Collectors.toMap(id, content, (a, b) -> a));
+
+        previousContents.forEach((k, v) -> {
+            if (!v.equals(contents.get(k))) {
+                changedIds.add(k);
+            }
+        });
+        contents.forEach((k, v) -> {
+            if (!v.equals(previousContents.get(k))) {
+                changedIds.add(k);
+            }
+        });
+    }
+
+    private static Set<List<Long>> pins(JsonInput input) {
+        return input.getPinnedMatches().stream()
+            .map(m -> Arrays.asList(m.getSystemId(), m.getSubscriptionId()))
+            .collect(Collectors.toSet());
+    }
+
+    private static boolean isActive(JsonSubscription subscription, Date timestamp) {
+        return subscription.getStartDate() != null && subscription.getEndDate() != null &&
+            !subscription.getStartDate().after(timestamp) && !subscription.getEndDate().before(timestamp);
+    }
+}
@@ -0,0 +1,519 @@
+package com.suse.matcher;
+
+import com.suse.matcher.OptaPlanner.ScoreCalculator;
+import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.AssignmentScoreCalculator;
+import com.suse.matcher.solver.Match;
+import com.suse.matcher.solver.MatchMoveIteratorFactory;
+import com.suse.matcher.solver.MatchSwapMoveIteratorFactory;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.constructionheuristic.placer.QueuedEntityPlacerConfig;
+import org.optaplanner.core.config.heuristic.selector.common.SelectionCacheType;
+import org.optaplanner.core.config.heuristic.selector.common.SelectionOrder;
+import org.optaplanner.core.config.heuristic.selector.entity.EntitySelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.value.ValueSelectorConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.localsearch.decider.acceptor.AcceptorConfig;
+import org.optaplanner.core.config.localsearch.decider.forager.LocalSearchForagerConfig;
+import org.optaplanner.core.config.score.definition.ScoreDefinitionType;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.random.RandomType;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Configures OptaPlanner solvers.
+ *
+ * Search effort is set by a {@link Profile}, and can be further limited by time or by a score that is good enough.
+ * Step, time and score limits apply to the whole problem, and are split among its independent components before
+ * solving by {@link OptaPlanner}. Results only depend on the input, unless a time limit stops search (see
+ * {@link #isReproducible()}).
+ *
+ * Builders are mutable, and every call to {@link #build()} returns a new solver factory with the current settings.
+ * Builders shared by concurrent runs (eg. in server mode) are frozen first (see {@link #freeze()}), so that their
+ * settings cannot change and all runs use one solver factory.
+ */
+public class SolverConfigBuilder {
+
+    /**
+     * Presets of local search limits, trading result quality for speed.
+     */
+    public enum Profile {
+        /** For interactive use, when answers are needed in seconds. */
+        FAST(200, 3_000, 50, 1_000, 2_000L),
+        /** The default. */
+        BALANCED(1_000, 15_000, 50, 5_000, 10_000L),
+        /** For unattended runs that can afford minutes. */
+        THOROUGH(5_000, 75_000, 50, 20_000, 40_000L);
+
+        /** Steps without score improvement after which search stops. */
+        private final int unimprovedStepCountLimit;
+
+        /** Steps after which search stops. */
+        private final int stepCountLimit;
+
+        /** Number of recent moves that are not accepted again. */
+        private final int moveTabuSize;
+
+        /** Maximum number of accepted moves evaluated in one step. */
+        private final int acceptedCountLimit;
+
+        /** Maximum number of moves selected by each move selector in one step. */
+        private final long selectedCountLimit;
+
+        Profile(int unimprovedStepCountLimitIn, int stepCountLimitIn, int moveTabuSizeIn, int acceptedCountLimitIn,
+                long selectedCountLimitIn) {
+            unimprovedStepCountLimit = unimprovedStepCountLimitIn;
+            stepCountLimit = stepCountLimitIn;
+            moveTabuSize = moveTabuSizeIn;
+            acceptedCountLimit = acceptedCountLimitIn;
+            selectedCountLimit = selectedCountLimitIn;
+        }
+    }
+
+    /**
+     * Time limit of the search of every component, unless another one is set for the whole problem. It only stops
+     * searches that would not end otherwise, so it is not split among components.
+     */
+    private static final Duration DEFAULT_TIME_LIMIT = Duration.ofHours(1);
+
+    /** Steps without score improvement after which search stops in unit tests. */
+    private static final int TESTING_UNIMPROVED_STEP_COUNT_LIMIT = 12;
+
+    /** True if running as a unit test. */
+    private boolean testing;
+
+    /** The score calculation implementation. */
+    private ScoreCalculator scoreCalculator = ScoreCalculator.INCREMENTAL;
+
+    /** Local search limits. */
+    private Profile profile = Profile.BALANCED;
+
+    /** Maximum local search time, null for no limit but the profile's ones. */
+    private Duration timeLimit;
+
+    /** Local search time without score improvement after which search stops, null for no limit. */
+    private Duration unimprovedTimeLimit;
+
+    /** Score of the whole problem after which search stops, null for no limit. */
+    private HardSoftScore bestScoreLimit;
+
+    /** Exact number of local search steps, null for the other limits. */
+    private Integer stepCountLimit;
+
+    /** True if independent components of the problem are solved separately. */
+    private boolean decomposition = true;
+
+    /** True if settings cannot change any more. */
+    private boolean frozen;
+
+    /** Solver factory of a frozen builder, null until needed. */
+    private SolverFactory<Assignment> factory;
+
+    /**
+     * Sets whether solvers run in unit tests, which deal with much less data. Tests need to run faster and
+     * check scores more thoroughly.
+     *
+     * @param testingIn true if running as a unit test, false otherwise
+     * @return this builder
+     */
+    public SolverConfigBuilder testing(boolean testingIn) {
+        checkNotFrozen();
+        testing = testingIn;
+        return this;
+    }
+
+    /**
+     * Sets the score calculation implementation.
+     *
+     * @param scoreCalculatorIn the score calculation implementation
+     * @return this builder
+     */
+    public SolverConfigBuilder scoreCalculator(ScoreCalculator scoreCalculatorIn) {
+        checkNotFrozen();
+        scoreCalculator = scoreCalculatorIn;
+        return this;
+    }
+
+    /**
+     * Sets local search limits.
+     *
+     * @param profileIn the profile
+     * @return this builder
+     */
+    public SolverConfigBuilder profile(Profile profileIn) {
+        checkNotFrozen();
+        profile = profileIn;
+        return this;
+    }
+
+    /**
+     * Sets the maximum time spent solving the whole problem. Search of every component also stops after one hour.
+     *
+     * @param timeLimitIn the time limit, null for none
+     * @return this builder
+     */
+    public SolverConfigBuilder timeLimit(Duration timeLimitIn) {
+        checkNotFrozen();
+        timeLimit = timeLimitIn;
+        return this;
+    }
+
+    /**
+     * Sets the local search time without score improvement after which solving a component stops.
+     *
+     * @param unimprovedTimeLimitIn the time limit, null for none
+     * @return this builder
+     */
+    public SolverConfigBuilder unimprovedTimeLimit(Duration unimprovedTimeLimitIn) {
+        checkNotFrozen();
+        unimprovedTimeLimit = unimprovedTimeLimitIn;
+        return this;
+    }
+
+    /**
+     * Sets a score after which solving stops, as it is considered good enough. The score applies to the whole
+     * problem: every component stops at its own share of it, proportional to its size, so the whole problem can end
+     * below the score if some components cannot reach their share.
+     *
+     * @param bestScoreLimitIn the score, eg. "0hard/1000soft", null for none
+     * @return this builder
+     * @throws IllegalArgumentException if the score cannot be parsed
+     */
+    public SolverConfigBuilder bestScoreLimit(String bestScoreLimitIn) {
+        checkNotFrozen();
+        bestScoreLimit = bestScoreLimitIn == null ? null : HardSoftScore.parseScore(bestScoreLimitIn);
+        return this;
+    }
+
+    /**
+     * Sets an exact number of local search steps for every component, ignoring all other limits and optimal scores,
+     * so that run times are comparable (eg. in benchmarks).
+     *
+     * @param stepCountLimitIn the number of steps, null for the other limits
+     * @return this builder
+     */
+    public SolverConfigBuilder stepCountLimit(Integer stepCountLimitIn) {
+        checkNotFrozen();
+        stepCountLimit = stepCountLimitIn;
+        return this;
+    }
+
+    /**
+     * Sets whether independent components of the problem are solved separately (see {@link Decomposer}), or the
+     * problem is solved as a whole.
+     *
+     * @param decompositionIn true to solve components separately, false otherwise
+     * @return this builder
+     */
+    public SolverConfigBuilder decomposition(boolean decompositionIn) {
+        checkNotFrozen();
+        decomposition = decompositionIn;
+        return this;
+    }
+
+    /**
+     * Returns the maximum time spent solving the whole problem.
+     *
+     * @return the time limit, empty if none was set or if an exact step count is set
+     */
+    Optional<Duration> getTimeLimit() {
+        return stepCountLimit != null ? Optional.empty() : Optional.ofNullable(timeLimit);
+    }
+
+    /**
+     * Returns the score of the whole problem after which search stops.
+     *
+     * @return the best score limit, empty if none or if an exact step count is set
+     */
+    Optional<HardSoftScore> getBestScoreLimit() {
+        return stepCountLimit != null ? Optional.empty() : Optional.ofNullable(bestScoreLimit);
+    }
+
+    /**
+     * Returns the maximum number of local search steps of the whole problem.
+     *
+     * @return the step count limit, empty if an exact step count is set
+     */
+    OptionalInt getStepCountLimit() {
+        return stepCountLimit != null ? OptionalInt.empty() : OptionalInt.of(profile.stepCountLimit);
+    }
+
+    /**
+     * Returns whether results only depend on the input. Time limits stop search after a number of steps that depends
+     * on machine speed and load, except the default one which is never reached in practice.
+     *
+     * @return false if a time limit is set, true otherwise
+     */
+    boolean isReproducible() {
+        return stepCountLimit != null || timeLimit == null && unimprovedTimeLimit == null;
+    }
+
+    /**
+     * Returns whether an exact number of local search steps is set, in which case no other limit applies.
+     *
+     * @return true if an exact step count is set
+     */
+    boolean isExactStepCount() {
+        return stepCountLimit != null;
+    }
+
+    /**
+     * Returns the number of local search steps without score improvement after which search stops.
+     *
+     * @return the unimproved step count limit
+     */
+    int getUnimprovedStepCountLimit() {
+        return testing ? TESTING_UNIMPROVED_STEP_COUNT_LIMIT : profile.unimprovedStepCountLimit;
+    }
+
+    /**
+     * Returns whether independent components of the problem are solved separately.
+     *
+     * @return true to solve components separately, false otherwise
+     */
+    boolean isDecomposition() {
+        return decomposition;
+    }
+
+    /**
+     * Returns a frozen copy of this builder, whose settings cannot change. Its solver factory is built on first use
+     * and then reused.
+     *
+     * @return the frozen builder
+     */
+    public SolverConfigBuilder freeze() {
+        SolverConfigBuilder result = new SolverConfigBuilder();
+        result.testing = testing;
+        result.scoreCalculator = scoreCalculator;
+        result.profile = profile;
+        result.timeLimit = timeLimit;
+        result.unimprovedTimeLimit = unimprovedTimeLimit;
+        result.bestScoreLimit = bestScoreLimit;
+        result.stepCountLimit = stepCountLimit;
+        result.decomposition = decomposition;
+        result.frozen = true;
+        return result;
+    }
+
+    /**
+     * Returns a solver factory with the current settings. Frozen builders build it once, otherwise a new one is
+     * built at every call. Solver factories are thread-safe, so concurrent runs can share one.
+     *
+     * @return the solver factory
+     */
+    public synchronized SolverFactory<Assignment> getFactory() {
+        if (!frozen) {
+            return build();
+        }
+        if (factory == null) {
+            factory = build();
+        }
+        return factory;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Solver configuration cannot change once frozen");
+        }
+    }
+
+    /**
+     * Configures and returns an OptaPlanner solver factory.
+     *
+     * This method replaces the XML configuration file cited in OptaPlanner's documentation.
+     *
+     * @return the solver factory
+     */
+    public SolverFactory<Assignment> build() {
+        // init basic objects
+        SolverFactory<Assignment> factory = SolverFactory.createEmpty();
+        SolverConfig config = factory.getSolverConfig();
+        config.setPhaseConfigList(new ArrayList<>());
+
+        /*
+         * Ensure results are reproducible across runs and JVMs
+         */
+        config.setEnvironmentMode(EnvironmentMode.REPRODUCIBLE);
+        config.setRandomType(RandomType.MERSENNE_TWISTER);
+        config.setRandomSeed(0L);
+
+        /*
+         * Declare solution and entity classes
+         */
+        config.setSolutionClass(Assignment.class);
+        config.setEntityClassList(List.of(Match.class));
+
+        /*
+         * Declare score type and calculation. Rules are always used to cross-check the incremental
+         * score calculator in unit tests (see below). Otherwise they are not compiled at all
+         */
+        ScoreDirectorFactoryConfig score;
+        if (scoreCalculator == ScoreCalculator.INCREMENTAL) {
+            score = new ScoreDirectorFactoryConfig();
+            score.setIncrementalScoreCalculatorClass(AssignmentScoreCalculator.class);
+            if (testing) {
+                // the assertion configuration inherits the score type
+                score.setAssertionScoreDirectorFactory(newDrlScore());
+            }
+        }
+        else {
+            score = newDrlScore();
+        }
+        score.setScoreDefinitionType(ScoreDefinitionType.HARD_SOFT);
+        config.setScoreDirectorFactoryConfig(score);
+
+        /*
+         * Construct an initial solution by visiting all possible Matches one by one, in order,
+         * and changing that Match's confirmed property from the initial null value first to true and
+         * then to false. Take whichever of the two has higher score and move on to the next Match
+         * (jargon for this is "first fit").
+         *
+         * Because of how the score is calculated, moving a Match's confirmed property from null to either
+         * true or false can only make hard score go down and/or the soft score go up (see Scores.drl).
+         *
+         * At the end of this process (called a Construction Heuristic or CH step) the hard score cannot
+         * be negative and the soft score is typically positive (worst case is all Match.confirmed being set to
+         * false, which yields 0/0).
+         *
+         * We use a custom Move Filter (ConflictMatchMoveFilter) to avoid moves that would result in conflicting
+         * Matches to be confirmed.
+         */
+        ConstructionHeuristicPhaseConfig constructionHeuristic = new ConstructionHeuristicPhaseConfig();
+        QueuedEntityPlacerConfig entityPlacer = new QueuedEntityPlacerConfig();
+        EntitySelectorConfig placerEntitySelector = new EntitySelectorConfig();
+        placerEntitySelector.setId("entitySelector");
+        placerEntitySelector.setCacheType(SelectionCacheType.PHASE);
+        placerEntitySelector.setSelectionOrder(SelectionOrder.ORIGINAL);
+        entityPlacer.setEntitySelectorConfig(placerEntitySelector);
+
+        ChangeMoveSelectorConfig changeMove = new ChangeMoveSelectorConfig();
+
+        EntitySelectorConfig moveEntitySelector = new EntitySelectorConfig();
+        moveEntitySelector.setMimicSelectorRef("entitySelector");
+        changeMove.setEntitySelectorConfig(moveEntitySelector);
+
+        ValueSelectorConfig valueSelector = new ValueSelectorConfig();
+        valueSelector.setCacheType(SelectionCacheType.PHASE);
+        valueSelector.setSelectionOrder(SelectionOrder.ORIGINAL);
+        changeMove.setValueSelectorConfig(valueSelector);
+
+        changeMove.setFilterClassList(List.of(ConflictMatchMoveFilter.class));
+        entityPlacer.setMoveSelectorConfigList(List.of(changeMove));
+        constructionHeuristic.setEntityPlacerConfig(entityPlacer);
+        config.getPhaseConfigList().add(constructionHeuristic);
+
+        /*
+         * Starting from the initial solution from the CH phase, explore other solutions by flipping some
+         * Match.confirmed boolean values. A change from a certain solution to a new solution is called a move,
+         * moves are repeated in iterations called steps.
+         *
+         * Sequences of steps will hopefully get to some new solutions that have a better score.
+         *
+         * For more information about how those moves are generated see the MatchMoveIteratorFactory class.
+         */
+        MoveIteratorFactoryConfig move = new MoveIteratorFactoryConfig();
+        move.setCacheType(SelectionCacheType.JUST_IN_TIME);
+        move.setSelectionOrder(SelectionOrder.RANDOM);
+        move.setMoveIteratorFactoryClass(MatchMoveIteratorFactory.class);
+        move.setSelectedCountLimit(profile.selectedCountLimit);
+
+        MoveIteratorFactoryConfig swapMove = new MoveIteratorFactoryConfig();
+        swapMove.setCacheType(SelectionCacheType.JUST_IN_TIME);
+        swapMove.setSelectionOrder(SelectionOrder.RANDOM);
+        swapMove.setMoveIteratorFactoryClass(MatchSwapMoveIteratorFactory.class);
+        swapMove.setSelectedCountLimit(profile.selectedCountLimit);
+
+        /*
+         * Union move uses both of the above move implementations:
+         * both moves alternate within the step (in random fashion).
+         */
+        UnionMoveSelectorConfig unionMoveConfig = new UnionMoveSelectorConfig();
+        unionMoveConfig.setMoveSelectorConfigList(List.of(move, swapMove));
+
+        LocalSearchPhaseConfig search = new LocalSearchPhaseConfig();
+        search.setMoveSelectorConfig(unionMoveConfig);
+
+        /*
+         * Among generated moves, don't accept moves that were already attempted in the last
+         * steps (50 by default, colloquially called "taboo").
+         *
+         * This prevents us to run in circles, repeating the same moves over and over (provided
+         * the circle is shorter than the tabu size).
+         */
+        AcceptorConfig acceptor = new AcceptorConfig();
+        acceptor.setMoveTabuSize(profile.moveTabuSize);
+        search.setAcceptorConfig(acceptor);
+
+        /*
+         * As accepted moves might still be a lot, don't evaluate more than 5_000 (by default) in any case.
+         */
+        LocalSearchForagerConfig forager = new LocalSearchForagerConfig();
+        forager.setAcceptedCountLimit(profile.acceptedCountLimit);
+        search.setForagerConfig(forager);
+
+        /*
+         * Continue stepping and keep track of the overall best solution found so far.
+         *
+         * At some point we have to stop stepping, and we do so when (with default values):
+         *   - we stepped 1000 times with no score improvement (typically)
+         *   - we stepped 15_000 times (when all else fails)
+         *   - we spent 1 hour finding the solution
+         * or when any explicitly set limit is reached.
+         *
+         * Step, time and best score limits set for the whole problem are not set here, as they are split among
+         * components (see OptaPlanner).
+         */
+        TerminationConfig termination = new TerminationConfig();
+        termination.setUnimprovedStepCountLimit(getUnimprovedStepCountLimit());
+        termination.setMillisecondsSpentLimit(DEFAULT_TIME_LIMIT.toMillis());
+        if (unimprovedTimeLimit != null) {
+            termination.setUnimprovedMillisecondsSpentLimit(unimprovedTimeLimit.toMillis());
+        }
+        search.setTerminationConfig(termination);
+
+        /*
+         * Tweak parameters in unit tests (see getUnimprovedStepCountLimit()), which deal with much less data
+         * and need to run faster. These can only degrade results, so if a unit test passes
+         * in test mode it will pass in production mode too.
+         * Also activate OptaPlanner full assertions to catch more issues, including
+         * differences between incremental scores and scores calculated by Scores.drl.
+         */
+        if (testing) {
+            config.setEnvironmentMode(EnvironmentMode.FULL_ASSERT);
+        }
+
+        /*
+         * Only stop after the specified number of steps, if any
+         */
+        if (stepCountLimit != null) {
+            termination.setUnimprovedStepCountLimit(null);
+            termination.setStepCountLimit(stepCountLimit);
+            termination.setMillisecondsSpentLimit(null);
+            termination.setUnimprovedMillisecondsSpentLimit(null);
+        }
+
+        // return solver factory
+        config.getPhaseConfigList().add(search);
+        return factory;
+    }
+
+    private static ScoreDirectorFactoryConfig newDrlScore() {
+        ScoreDirectorFactoryConfig result = new ScoreDirectorFactoryConfig();
+        result.setKieBase(OptaPlanner.getScoreKieBase());
+        return result;
+    }
+}
@@ -46,18 +46,25 @@ public class CSVOutputUnmatchedProduct {
      */
     public List<List<String>> getCSVRows() {
         List<List<String>> resultSet = new LinkedList<>();
-
-        List<String> row = new LinkedList<>();
-        row.add(productName);
-
         for (System system : unmatchedSystems) {
-            row.add(system.name);
-            row.add(String.valueOf(system.id));
-            row.add(String.valueOf(system.cpus));
-            resultSet.add(row);
-            row = new ArrayList<>();
-            row.add("");
+            resultSet.add(getCSVRow(resultSet.isEmpty() ? productName : "", system));
         }
         return resultSet;
     }
+
+    /**
+     * Gets one CSV row. Only the first row of every product has the product name.
+     *
+     * @param productName the product name, or an empty string for rows after the first
+     * @param system the unmatched system
+     * @return the CSV row
+     */
+    public static List<String> getCSVRow(String productName, System system) {
+        List<String> row = new ArrayList<>(4);
+        row.add(productName);
+        row.add(system.name);
+        row.add(String.valueOf(system.id));
+        row.add(String.valueOf(system.cpus));
+        return row;
+    }
 }
@@ -1,5 +1,6 @@
 package com.suse.matcher.solver;
 
+import com.suse.matcher.Metrics;
 import com.suse.matcher.facts.PotentialMatch;
 
 import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty;
@@ -8,11 +9,12 @@ import org.optaplanner.core.api.domain.solution.Solution;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -29,7 +31,7 @@ public class Assignment implements Solution<HardSoftScore> {
     private List<Match> matches;
 
     /** Other problem facts passed by Drools. */
-    private Collection<Object> problemFacts;
+    private FactStore problemFacts;
 
     /** Maps every {@link Match} id to all conflicting sets where it appears. */
     private Map<Integer, List<List<Integer>>> conflictMap;
@@ -37,6 +39,18 @@ public class Assignment implements Solution<HardSoftScore> {
     /** Cache of sorted potential matches. */
     private List<PotentialMatch> sortedPotentialMatchesCache;
 
+    /** Ids of matches, in the same order as matches. */
+    private int[] matchIds;
+
+    /** Maps every index in matches to indexes of conflicting {@link Match}es. */
+    private int[][] conflictingMatchIndexes;
+
+    /** Confirmed matches, computed once solving is over. */
+    private transient MatchResult matchResult;
+
+    /** Timings and counters of the run producing this assignment. */
+    private transient Metrics metrics;
+
     /**
      * Default constructor, required by OptaPlanner.
      */
@@ -46,7 +60,7 @@ public class Assignment implements Solution<HardSoftScore> {
     /**
      * Standard constructor.
      *
-     * @param matchesIn fact corresponding to possible matches
+     * @param matchesIn fact corresponding to possible matches, sorted by id
      * @param problemFactsIn any other problem facts
      * @param conflictMapIn maps every {@link Match} id to any conflicting sets where it appears
      * @param sortedPotentialMatchesIn sorted potential matches
@@ -54,9 +68,20 @@ public class Assignment implements Solution<HardSoftScore> {
     public Assignment(List<Match> matchesIn, Collection<Object> problemFactsIn,
             Map<Integer, List<List<Integer>>> conflictMapIn, List<PotentialMatch> sortedPotentialMatchesIn) {
         matches = matchesIn;
-        problemFacts = problemFactsIn;
+        problemFacts = new FactStore(problemFactsIn);
         conflictMap = conflictMapIn;
         sortedPotentialMatchesCache = sortedPotentialMatchesIn;
+
+        // precompute conflicts by position in matches, so that they can be checked without lookups.
+        // Matches keep their order when OptaPlanner clones this object, so this stays valid for clones
+        matchIds = matches.stream().mapToInt(m -> m.id).toArray();
+        conflictingMatchIndexes = new int[matchIds.length][];
+        for (int i = 0; i < matchIds.length; i++) {
+            conflictingMatchIndexes[i] = getConflictingMatchIds(matchIds[i])
+                .mapToInt(id -> Arrays.binarySearch(matchIds, id))
+                .distinct()
+                .toArray();
+        }
     }
 
     /**
@@ -85,11 +110,8 @@ public class Assignment implements Solution<HardSoftScore> {
      * @param type of the facts
      * @return the facts as stream
      */
-    @SuppressWarnings("unchecked") // no way around this in Java 8
     public <T> Stream<T> getProblemFactStream(Class<T> type) {
-        return getProblemFacts().stream()
-            .filter(o -> type.isAssignableFrom(o.getClass()))
-            .map(o -> (T)o);
+        return problemFacts.get(type).stream();
     }
 
     /**
@@ -100,8 +122,20 @@ public class Assignment implements Solution<HardSoftScore> {
      * @return the facts as stream
      */
     public <T> Collection<T> getProblemFacts(Class<T> type) {
-        return getProblemFactStream(type)
-            .collect(Collectors.toList());
+        return problemFacts.get(type);
+    }
+
+    /**
+     * Returns problem facts of a type by id.
+     *
+     * @param <T> type of the facts
+     * @param type of the facts
+     * @param id returns the id of a fact
+     * @return the facts by id
+     * @see FactStore#getIndex(Class, Function)
+     */
+    public <T> Map<Long, T> getProblemFactIndex(Class<T> type, Function<? super T, Long> id) {
+        return problemFacts.getIndex(type, id);
     }
 
     /**
@@ -130,6 +164,41 @@ public class Assignment implements Solution<HardSoftScore> {
         return matches;
     }
 
+    /**
+     * Returns confirmed matches. They are computed on first call, which must happen after solving, and shared by
+     * all later callers.
+     *
+     * @return the confirmed matches
+     */
+    public MatchResult getMatchResult() {
+        if (matchResult == null) {
+            matchResult = new MatchResult(this);
+        }
+        return matchResult;
+    }
+
+    /**
+     * Returns timings and counters of the run producing this assignment, creating them on first call if they were
+     * not set.
+     *
+     * @return the metrics
+     */
+    public Metrics getMetrics() {
+        if (metrics == null) {
+            metrics = new Metrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Sets timings and counters of the run producing this assignment.
+     *
+     * @param metricsIn the metrics
+     */
+    public void setMetrics(Metrics metricsIn) {
+        metrics = metricsIn;
+    }
+
     /**
      * Returns values for a {@link Match} confirmed field that OptaPlanner will
      * change.
@@ -142,6 +211,52 @@ public class Assignment implements Solution<HardSoftScore> {
     }
 
 
+    /**
+     * Gets the map from every {@link Match} id to all conflicting sets where it appears.
+     *
+     * @return the conflict map
+     */
+    public Map<Integer, List<List<Integer>>> getConflictMap() {
+        return conflictMap;
+    }
+
+    /**
+     * Returns true if any {@link Match} conflicting with the specified {@link Match} is confirmed.
+     *
+     * @param match a {@link Match} in this assignment
+     * @return true if a conflicting {@link Match} is confirmed
+     */
+    public boolean isConflictingMatchConfirmed(Match match) {
+        for (int index : conflictingMatchIndexes[getMatchIndex(match.id)]) {
+            if (Boolean.TRUE.equals(matches.get(index).confirmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the position of a {@link Match} in {@link #getMatches()}.
+     *
+     * @param matchId a {@link Match} id
+     * @return the index of the {@link Match}
+     */
+    public int getMatchIndex(int matchId) {
+        return Arrays.binarySearch(matchIds, matchId);
+    }
+
+    /**
+     * Returns positions in {@link #getMatches()} of {@link Match}es conflicting with the specified {@link Match}.
+     *
+     * The returned array is shared and must not be modified.
+     *
+     * @param index the index of a {@link Match}
+     * @return indexes of the conflicting {@link Match}es
+     */
+    public int[] getConflictingMatchIndexes(int index) {
+        return conflictingMatchIndexes[index];
+    }
+
     /**
      * Returns {@link Match} ids conflicting with the specified {@link Match}.
      * @param matchId a {@link Match} id
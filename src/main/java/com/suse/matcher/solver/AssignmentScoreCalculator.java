@@ -0,0 +1,393 @@
+package com.suse.matcher.solver;
+
+import com.suse.matcher.facts.CentGroup;
+import com.suse.matcher.facts.InstalledProduct;
+import com.suse.matcher.facts.PenaltyGroup;
+import com.suse.matcher.facts.PinnedMatch;
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.facts.Subscription;
+import com.suse.matcher.facts.Subscription.Policy;
+
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+import org.optaplanner.core.impl.score.director.incremental.IncrementalScoreCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Calculates {@link Assignment} scores incrementally, with the same results as Scores.drl.
+ *
+ * Everything that does not depend on {@link Match} confirmation is computed once per working solution:
+ * - the soft score a {@link Match} contributes when confirmed (covered installations, pinned matches
+ *   and bundled matches)
+ * - the (subscription, cent group) penalties and (subscription, penalty group, guest) confirmations
+ *   a {@link Match} takes part in
+ *
+ * Confirming or unconfirming a {@link Match} then only updates counters for those, and the hard score
+ * of the subscriptions whose used cents change.
+ */
+public class AssignmentScoreCalculator implements IncrementalScoreCalculator<Assignment> {
+
+    /** Cents of a penalty for an odd number of guests in a penalty group, see Scores.drl. */
+    private static final int ONE_TWO_PENALTY_CENTS = 50;
+
+    /** Ids of all {@link Match}es, sorted. */
+    private int[] matchIds;
+
+    /** True if the {@link Match} at the same index is counted as confirmed. */
+    private boolean[] confirmed;
+
+    /** Soft score of the {@link Match} at the same index when confirmed. */
+    private int[] matchSoftScores;
+
+    /** (subscription, cent group) penalty indexes of the {@link Match} at the same index. */
+    private int[][] matchCentPenalties;
+
+    /** (subscription, penalty group, guest) indexes of the {@link Match} at the same index. */
+    private int[][] matchGuests;
+
+    /** Subscription index of every (subscription, cent group) penalty. */
+    private int[] centPenaltySubscriptions;
+
+    /** Cents of every (subscription, cent group) penalty. */
+    private int[] centPenaltyCents;
+
+    /** Number of confirmed potential matches for every (subscription, cent group) penalty. */
+    private int[] centPenaltyCounts;
+
+    /** (subscription, penalty group) index of every (subscription, penalty group, guest). */
+    private int[] guestPenaltyGroups;
+
+    /** Number of confirmed potential matches for every (subscription, penalty group, guest). */
+    private int[] guestCounts;
+
+    /** Subscription index of every (subscription, penalty group). */
+    private int[] penaltyGroupSubscriptions;
+
+    /** Number of guests with confirmed potential matches for every (subscription, penalty group). */
+    private int[] penaltyGroupGuestCounts;
+
+    /** Available cents of every subscription. */
+    private int[] availableCents;
+
+    /** Used cents of every subscription. */
+    private int[] usedCents;
+
+    /** Current hard score. */
+    private int hardScore;
+
+    /** Current soft score. */
+    private int softScore;
+
+    /** {@inheritDoc} */
+    @Override
+    public void resetWorkingSolution(Assignment assignment) {
+        matchIds = assignment.getMatches().stream().mapToInt(m -> m.id).sorted().toArray();
+        confirmed = new boolean[matchIds.length];
+
+        // index subscriptions, only those which are not ignored take part in scoring
+        Map<Long, Integer> subscriptionIndexes = new HashMap<>();
+        Set<Long> oneTwoSubscriptionIds = new HashSet<>();
+        List<Integer> availableCentList = new ArrayList<>();
+        assignment.getProblemFactStream(Subscription.class)
+            .filter(s -> !s.ignored)
+            .forEach(s -> {
+                subscriptionIndexes.put(s.id, availableCentList.size());
+                availableCentList.add(s.quantity == Integer.MAX_VALUE ? Integer.MAX_VALUE : s.quantity * 100);
+                if (s.policy == Policy.ONE_TWO) {
+                    oneTwoSubscriptionIds.add(s.id);
+                }
+            });
+        availableCents = availableCentList.stream().mapToInt(i -> i).toArray();
+        usedCents = new int[availableCents.length];
+
+        // index other facts used in score rules
+        Map<Integer, Set<Integer>> centGroupCents = new HashMap<>();
+        assignment.getProblemFactStream(CentGroup.class)
+            .forEach(c -> centGroupCents.computeIfAbsent(c.id, k -> new LinkedHashSet<>()).add(c.cents));
+
+        Map<Long, Set<Integer>> guestPenaltyGroupIds = new HashMap<>();
+        assignment.getProblemFactStream(PenaltyGroup.class)
+            .forEach(g -> guestPenaltyGroupIds.computeIfAbsent(g.getGuestId(), k -> new LinkedHashSet<>()).add(g.getId()));
+
+        // only potential matches with a corresponding Match take part in scoring
+        List<PotentialMatch> potentialMatches = getScoredPotentialMatches(assignment, matchIds);
+        int[] potentialMatchSoftScores = getSoftScores(assignment, potentialMatches);
+
+        // compute the contribution of every potential match
+        matchSoftScores = new int[matchIds.length];
+        List<List<Integer>> centPenaltyLists = newLists(matchIds.length);
+        List<List<Integer>> guestLists = newLists(matchIds.length);
+        Map<List<Long>, Integer> centPenaltyIndexes = new HashMap<>();
+        List<Integer> centPenaltySubscriptionList = new ArrayList<>();
+        List<Integer> centPenaltyCentList = new ArrayList<>();
+        Map<List<Long>, Integer> guestIndexes = new HashMap<>();
+        List<Integer> guestPenaltyGroupList = new ArrayList<>();
+        Map<List<Long>, Integer> penaltyGroupIndexes = new HashMap<>();
+        List<Integer> penaltyGroupSubscriptionList = new ArrayList<>();
+
+        for (int i = 0; i < potentialMatches.size(); i++) {
+            PotentialMatch p = potentialMatches.get(i);
+            int index = indexOf(p.groupId);
+            matchSoftScores[index] += potentialMatchSoftScores[i];
+
+            Integer subscriptionIndex = subscriptionIndexes.get(p.subscriptionId);
+            if (subscriptionIndex == null) {
+                continue;
+            }
+
+            // "penaltyForExceededMatches"
+            for (int cents : centGroupCents.getOrDefault(p.centGroupId, Set.of())) {
+                int centPenalty = centPenaltyIndexes.computeIfAbsent(List.of(p.subscriptionId, (long) p.centGroupId,
+                        (long) cents), k -> {
+                    centPenaltySubscriptionList.add(subscriptionIndex);
+                    centPenaltyCentList.add(cents);
+                    return centPenaltySubscriptionList.size() - 1;
+                });
+                centPenaltyLists.get(index).add(centPenalty);
+            }
+
+            // "calculate12Penalties"
+            if (oneTwoSubscriptionIds.contains(p.subscriptionId)) {
+                for (int penaltyGroupId : guestPenaltyGroupIds.getOrDefault(p.systemId, Set.of())) {
+                    int penaltyGroup = penaltyGroupIndexes.computeIfAbsent(List.of(p.subscriptionId,
+                            (long) penaltyGroupId), k -> {
+                        penaltyGroupSubscriptionList.add(subscriptionIndex);
+                        return penaltyGroupSubscriptionList.size() - 1;
+                    });
+                    int guest = guestIndexes.computeIfAbsent(List.of(p.subscriptionId, (long) penaltyGroupId,
+                            p.systemId), k -> {
+                        guestPenaltyGroupList.add(penaltyGroup);
+                        return guestPenaltyGroupList.size() - 1;
+                    });
+                    guestLists.get(index).add(guest);
+                }
+            }
+        }
+
+        matchCentPenalties = toArrays(centPenaltyLists);
+        matchGuests = toArrays(guestLists);
+        centPenaltySubscriptions = toArray(centPenaltySubscriptionList);
+        centPenaltyCents = toArray(centPenaltyCentList);
+        centPenaltyCounts = new int[centPenaltySubscriptions.length];
+        guestPenaltyGroups = toArray(guestPenaltyGroupList);
+        guestCounts = new int[guestPenaltyGroups.length];
+        penaltyGroupSubscriptions = toArray(penaltyGroupSubscriptionList);
+        penaltyGroupGuestCounts = new int[penaltyGroupSubscriptions.length];
+
+        // start from an empty solution, then add confirmed matches
+        hardScore = 0;
+        softScore = 0;
+        for (Match match : assignment.getMatches()) {
+            insert(match);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void beforeEntityAdded(Object entity) {
+        // nothing to do
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterEntityAdded(Object entity) {
+        insert((Match) entity);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void beforeVariableChanged(Object entity, String variableName) {
+        retract((Match) entity);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterVariableChanged(Object entity, String variableName) {
+        insert((Match) entity);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void beforeEntityRemoved(Object entity) {
+        retract((Match) entity);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void afterEntityRemoved(Object entity) {
+        // nothing to do
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public HardSoftScore calculateScore() {
+        return HardSoftScore.of(hardScore, softScore);
+    }
+
+    private void insert(Match match) {
+        int index = indexOf(match.id);
+        if (confirmed[index] || !Boolean.TRUE.equals(match.confirmed)) {
+            return;
+        }
+        confirmed[index] = true;
+        softScore += matchSoftScores[index];
+
+        for (int centPenalty : matchCentPenalties[index]) {
+            if (centPenaltyCounts[centPenalty]++ == 0) {
+                addUsedCents(centPenaltySubscriptions[centPenalty], centPenaltyCents[centPenalty]);
+            }
+        }
+        for (int guest : matchGuests[index]) {
+            if (guestCounts[guest]++ == 0) {
+                changeGuestCount(guestPenaltyGroups[guest], 1);
+            }
+        }
+    }
+
+    private void retract(Match match) {
+        int index = indexOf(match.id);
+        if (!confirmed[index]) {
+            return;
+        }
+        confirmed[index] = false;
+        softScore -= matchSoftScores[index];
+
+        for (int centPenalty : matchCentPenalties[index]) {
+            if (--centPenaltyCounts[centPenalty] == 0) {
+                addUsedCents(centPenaltySubscriptions[centPenalty], -centPenaltyCents[centPenalty]);
+            }
+        }
+        for (int guest : matchGuests[index]) {
+            if (--guestCounts[guest] == 0) {
+                changeGuestCount(guestPenaltyGroups[guest], -1);
+            }
+        }
+    }
+
+    // "insert12Penalties": an odd number of guests in a penalty group costs a penalty
+    private void changeGuestCount(int penaltyGroup, int delta) {
+        boolean wasOdd = penaltyGroupGuestCounts[penaltyGroup] % 2 == 1;
+        penaltyGroupGuestCounts[penaltyGroup] += delta;
+        boolean isOdd = penaltyGroupGuestCounts[penaltyGroup] % 2 == 1;
+        if (wasOdd != isOdd) {
+            addUsedCents(penaltyGroupSubscriptions[penaltyGroup], isOdd ? ONE_TWO_PENALTY_CENTS : -ONE_TWO_PENALTY_CENTS);
+        }
+    }
+
+    // "dontExceedSubscriptionCount"
+    private void addUsedCents(int subscription, int cents) {
+        hardScore -= getHardScore(subscription);
+        usedCents[subscription] += cents;
+        hardScore += getHardScore(subscription);
+    }
+
+    private int getHardScore(int subscription) {
+        int available = availableCents[subscription];
+        int used = usedCents[subscription];
+        return (available - used) >= 0 ? 0 :
+            // limit penalty to 10 points
+            -10 + available * 9 / used;
+    }
+
+    /**
+     * Returns an upper bound of the scores of all solutions of an {@link Assignment}, which is reached if every
+     * installed product is covered by the best possible {@link Match} without exceeding any subscription.
+     *
+     * {@link Match}es targeting the same (system, product) couple conflict, so at most one of them is confirmed
+     * in any solution. As soft score contributions are never negative, no solution can score more than the sum
+     * of the best contribution to every (system, product) couple.
+     *
+     * @param assignment the problem
+     * @return the upper bound, with a zero hard score
+     */
+    public static HardSoftScore getUpperBound(Assignment assignment) {
+        int[] matchIds = assignment.getMatches().stream().mapToInt(m -> m.id).sorted().toArray();
+        List<PotentialMatch> potentialMatches = getScoredPotentialMatches(assignment, matchIds);
+        int[] potentialMatchSoftScores = getSoftScores(assignment, potentialMatches);
+
+        // contribution of every Match to every (system, product) couple
+        Map<List<Long>, Map<Integer, Integer>> couplesMatchSoftScores = new HashMap<>();
+        for (int i = 0; i < potentialMatches.size(); i++) {
+            PotentialMatch p = potentialMatches.get(i);
+            couplesMatchSoftScores.computeIfAbsent(List.of(p.systemId, p.productId), k -> new HashMap<>())
+                .merge(p.groupId, potentialMatchSoftScores[i], Integer::sum);
+        }
+
+        int softScore = couplesMatchSoftScores.values().stream()
+            .mapToInt(scores -> scores.values().stream().mapToInt(i -> i).max().orElse(0))
+            .sum();
+        return HardSoftScore.of(0, softScore);
+    }
+
+    private static List<PotentialMatch> getScoredPotentialMatches(Assignment assignment, int[] matchIds) {
+        return assignment.getProblemFactStream(PotentialMatch.class)
+            .filter(p -> Arrays.binarySearch(matchIds, p.groupId) >= 0)
+            .collect(Collectors.toList());
+    }
+
+    // soft score every potential match contributes when its Match is confirmed
+    private static int[] getSoftScores(Assignment assignment, List<PotentialMatch> potentialMatches) {
+        Map<InstalledProduct, Integer> installedProductCounts = new HashMap<>();
+        assignment.getProblemFactStream(InstalledProduct.class)
+            .forEach(i -> installedProductCounts.merge(i, 1, Integer::sum));
+
+        Map<List<Long>, Integer> pinCounts = new HashMap<>();
+        assignment.getProblemFactStream(PinnedMatch.class)
+            .forEach(p -> pinCounts.merge(List.of(p.systemId, p.subscriptionId), 1, Integer::sum));
+
+        Map<List<Long>, List<Integer>> centGroupMatchIds = new HashMap<>();
+        for (PotentialMatch p : potentialMatches) {
+            centGroupMatchIds.computeIfAbsent(List.of(p.systemId, (long) p.centGroupId), k -> new ArrayList<>())
+                .add(p.groupId);
+        }
+
+        int[] result = new int[potentialMatches.size()];
+        for (int i = 0; i < result.length; i++) {
+            PotentialMatch p = potentialMatches.get(i);
+
+            // "maximizeCoveredInstallations"
+            result[i] += 100 * installedProductCounts.getOrDefault(new InstalledProduct(p.systemId, p.productId), 0);
+
+            // "maximizePinnedMatches"
+            result[i] += 10 * pinCounts.getOrDefault(List.of(p.systemId, p.subscriptionId), 0);
+
+            // "preferBundledMatches"
+            for (int otherGroupId : centGroupMatchIds.get(List.of(p.systemId, (long) p.centGroupId))) {
+                if (otherGroupId != p.groupId) {
+                    result[i] += 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(int matchId) {
+        return Arrays.binarySearch(matchIds, matchId);
+    }
+
+    private static List<List<Integer>> newLists(int size) {
+        List<List<Integer>> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(new ArrayList<>());
+        }
+        return result;
+    }
+
+    private static int[][] toArrays(List<List<Integer>> lists) {
+        return lists.stream()
+            .map(AssignmentScoreCalculator::toArray)
+            .toArray(int[][]::new);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(i -> i).toArray();
+    }
+}
@@ -0,0 +1,115 @@
+package com.suse.matcher.solver;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A collection of problem facts, partitioned by class.
+ *
+ * Facts can only be added. Iteration returns them in insertion order, while facts of a given
+ * type can be retrieved without scanning the whole collection. Facts of every requested type, and their
+ * indexes by id, are computed on the first request and kept until facts are added.
+ */
+public class FactStore extends AbstractCollection<Object> {
+
+    /** All facts, in insertion order. */
+    private final List<Object> facts = new ArrayList<>();
+
+    /** Facts by their concrete class, in insertion order. */
+    private final Map<Class<?>, List<Object>> factsByClass = new LinkedHashMap<>();
+
+    /** Facts of every requested type, including subtypes. */
+    private final Map<Class<?>, List<Object>> factsByType = new ConcurrentHashMap<>();
+
+    /** Facts of every requested type by id. */
+    private final Map<Class<?>, Map<Long, Object>> factsById = new ConcurrentHashMap<>();
+
+    /**
+     * Standard constructor.
+     *
+     * @param factsIn initial facts
+     */
+    public FactStore(Collection<Object> factsIn) {
+        addAll(factsIn);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean add(Object fact) {
+        facts.add(fact);
+        factsByClass.computeIfAbsent(fact.getClass(), k -> new ArrayList<>()).add(fact);
+        factsByType.clear();
+        factsById.clear();
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<Object> iterator() {
+        return Collections.unmodifiableList(facts).iterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return facts.size();
+    }
+
+    /**
+     * Returns facts of the specified type, including subtypes, in insertion order.
+     *
+     * @param <T> type of the facts
+     * @param type of the facts
+     * @return an unmodifiable list of facts
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> get(Class<T> type) {
+        return (List<T>) factsByType.computeIfAbsent(type, this::collect);
+    }
+
+    /**
+     * Returns facts of the specified type, including subtypes, by id. If several facts have the same id, the first
+     * one is returned. Facts of a type are always indexed by the same id.
+     *
+     * @param <T> type of the facts
+     * @param type of the facts
+     * @param id returns the id of a fact
+     * @return an unmodifiable map of facts by id
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<Long, T> getIndex(Class<T> type, Function<? super T, Long> id) {
+        return (Map<Long, T>) factsById.computeIfAbsent(type, k -> {
+            Map<Long, Object> result = new HashMap<>();
+            get(type).forEach(f -> result.putIfAbsent(id.apply(f), f));
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    private List<Object> collect(Class<?> type) {
+        List<Class<?>> classes = factsByClass.keySet().stream()
+            .filter(type::isAssignableFrom)
+            .collect(Collectors.toList());
+
+        if (classes.isEmpty()) {
+            return List.of();
+        }
+        if (classes.size() == 1) {
+            return Collections.unmodifiableList(factsByClass.get(classes.get(0)));
+        }
+
+        // facts of different classes are interleaved, restore the original order
+        return facts.stream()
+            .filter(o -> type.isAssignableFrom(o.getClass()))
+            .collect(Collectors.toUnmodifiableList());
+    }
+}
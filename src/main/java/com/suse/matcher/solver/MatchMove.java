@@ -1,36 +1,75 @@
 package com.suse.matcher.solver;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.optaplanner.core.impl.heuristic.move.AbstractMove;
 import org.optaplanner.core.impl.score.director.ScoreDirector;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * A custom-designed move for this specific problem.
  *
  * This will simply flip multiple "confirmed" bits in an equal number of {@link Match} planning entities.
+ *
+ * Matches are stored as indexes in the solution's list and new confirmed flags as packed bits, so that moves are
+ * cheap to create, compare against the tabu list and undo.
  */
 public class MatchMove extends AbstractMove<Assignment> {
 
-    /** The matches. */
-    List<Match> matches;
+    /** All matches of the solution. */
+    private final List<Match> matches;
+
+    /** Indexes in matches of the matches to flip. */
+    private final int[] indexes;
+
+    /** The new confirmed flags: flag i is bit i % 64 of element i / 64. */
+    private final long[] confirmedFlags;
 
-    /** The confirmed flags. */
-    List<Boolean> confirmedFlags;
+    /** Hash code, computed once as moves are hashed for every check against the tabu list. */
+    private final int hash;
+
+    /** The undo move, created on first use and updated at every later use. */
+    private MatchMove undoMove;
 
     /**
      * Instantiates a new match move.
      *
-     * @param matchesIn the matches to flip
-     * @param confirmedFlagsIn the new values of their confirmed flags. Must match in size()
+     * @param matchesIn all matches of the solution
+     * @param indexesIn indexes in matchesIn of the matches to flip
+     * @param confirmedFlagsIn the new values of their confirmed flags, as created by
+     * {@link #newConfirmedFlags(int)}
      */
-    public MatchMove(List<Match> matchesIn, List<Boolean> confirmedFlagsIn) {
+    public MatchMove(List<Match> matchesIn, int[] indexesIn, long[] confirmedFlagsIn) {
         matches = matchesIn;
+        indexes = indexesIn;
         confirmedFlags = confirmedFlagsIn;
+        hash = Arrays.hashCode(indexes);
+    }
+
+    /**
+     * Returns a new array to hold confirmed flags of a number of matches, all false.
+     *
+     * @param size the number of matches
+     * @return the flags
+     */
+    public static long[] newConfirmedFlags(int size) {
+        return new long[(size + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Sets a confirmed flag to true.
+     *
+     * @param flags the flags, as created by {@link #newConfirmedFlags(int)}
+     * @param i the position of the flag
+     */
+    public static void setConfirmed(long[] flags, int i) {
+        flags[i / Long.SIZE] |= 1L << (i % Long.SIZE);
+    }
+
+    private boolean isConfirmed(int i) {
+        return (confirmedFlags[i / Long.SIZE] & (1L << (i % Long.SIZE))) != 0;
     }
 
     /**
@@ -38,10 +77,10 @@ public class MatchMove extends AbstractMove<Assignment> {
      */
     @Override
     protected void doMoveOnGenuineVariables(ScoreDirector<Assignment> director) {
-        for (int i = 0; i < matches.size(); i++) {
-            Match m = matches.get(i);
+        for (int i = 0; i < indexes.length; i++) {
+            Match m = matches.get(indexes[i]);
             director.beforeVariableChanged(m, "confirmed");
-            m.setConfirmed(confirmedFlags.get(i));
+            m.setConfirmed(isConfirmed(i));
             director.afterVariableChanged(m, "confirmed");
         }
     }
@@ -57,14 +96,21 @@ public class MatchMove extends AbstractMove<Assignment> {
 
     /**
      * {@inheritDoc}
+     *
+     * The same undo move is returned by every call, with flags updated to the current ones.
      */
     @Override
     public AbstractMove<Assignment> createUndoMove(ScoreDirector<Assignment> director) {
-        List<Boolean> newConfirmedFlags = matches.stream()
-                .map(m -> m.confirmed)
-                .collect(Collectors.toList());
-
-        return new MatchMove(matches, newConfirmedFlags);
+        if (undoMove == null) {
+            undoMove = new MatchMove(matches, indexes, newConfirmedFlags(indexes.length));
+        }
+        Arrays.fill(undoMove.confirmedFlags, 0L);
+        for (int i = 0; i < indexes.length; i++) {
+            if (matches.get(indexes[i]).confirmed) {
+                setConfirmed(undoMove.confirmedFlags, i);
+            }
+        }
+        return undoMove;
     }
 
     /**
@@ -72,7 +118,11 @@ public class MatchMove extends AbstractMove<Assignment> {
      */
     @Override
     public Collection<Match> getPlanningEntities() {
-        return matches;
+        List<Match> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            result.add(matches.get(index));
+        }
+        return result;
     }
 
     /**
@@ -80,17 +130,19 @@ public class MatchMove extends AbstractMove<Assignment> {
      */
     @Override
     public Collection<Boolean> getPlanningValues() {
-        return confirmedFlags;
+        List<Boolean> result = new ArrayList<>(indexes.length);
+        for (int i = 0; i < indexes.length; i++) {
+            result.add(isConfirmed(i));
+        }
+        return result;
     }
 
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder()
-            // because of how MatchMoveIterator works, we only need to check
-            // Match objects - confirmedFlags is computed from them
-            .append(matches)
-            .toHashCode();
+        // because of how MatchMoveIterator works, we only need to check
+        // Match objects - confirmedFlags is computed from them
+        return hash;
     }
 
     /** {@inheritDoc} */
@@ -100,10 +152,8 @@ public class MatchMove extends AbstractMove<Assignment> {
             return false;
         }
         MatchMove other = (MatchMove) objIn;
-        return new EqualsBuilder()
-            // see hashCode()
-            .append(matches, other.matches)
-            .isEquals();
+        // see hashCode()
+        return hash == other.hash && Arrays.equals(indexes, other.indexes);
     }
 
     /** {@inheritDoc} */
@@ -111,11 +161,11 @@ public class MatchMove extends AbstractMove<Assignment> {
     public String toString() {
         StringBuilder builder = new StringBuilder();
         builder.append("MatchMove[");
-        for (int i = 0; i < matches.size(); i++) {
-            builder.append(matches.get(i));
+        for (int i = 0; i < indexes.length; i++) {
+            builder.append(matches.get(indexes[i]));
             builder.append("->");
-            builder.append(confirmedFlags.get(i));
-            if (i < matches.size() - 1) {
+            builder.append(isConfirmed(i));
+            if (i < indexes.length - 1) {
                 builder.append(",");
             }
         }
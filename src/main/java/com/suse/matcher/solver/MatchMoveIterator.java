@@ -1,79 +1,99 @@
 package com.suse.matcher.solver;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import com.suse.matcher.util.CollectionUtils;
+
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.stream.Collectors;
 
 /**
  * Generates {@link MatchMove}s.
  *
  * In particular, every {@link MatchMove} produced by this class will flip the confirmed
  * flag of one {@link Match} and also make sure all incompatible flags are flipped to false
+ *
+ * Every {@link Match} is picked once, in random order.
  */
 public class MatchMoveIterator implements Iterator<MatchMove> {
 
+    /** Conflicts to check when unconfirming a match. */
+    private static final int[] NO_CONFLICTS = new int[0];
+
     /** Solution instance. */
     private final Assignment assignment;
 
-    /** Iterator over all matches. */
-    private final Iterator<Match> iterator;
+    /** Indexes of all matches, in random order. */
+    private final int[] order;
 
-    /** Map from id to {@link Match}. */
-    private final Map<Integer, Match> idMap;
+    /** Position in order of the next match to pick. */
+    private int next;
 
     /**
      * Standard constructor.
      * @param assignmentIn a solution instance
+     * @param orderIn a buffer for indexes of all matches, reused by this iterator
      * @param randomIn a random number generator instance
      */
-    public MatchMoveIterator(Assignment assignmentIn, Random randomIn) {
+    public MatchMoveIterator(Assignment assignmentIn, int[] orderIn, Random randomIn) {
         assignment = assignmentIn;
-
-        List<Match> orderedMatches = new ArrayList<>(assignment.getMatches());
-        Collections.shuffle(orderedMatches, randomIn);
-
-        iterator = orderedMatches.iterator();
-
-        idMap = orderedMatches.stream()
-            .collect(Collectors.toMap(match -> match.id, match -> match));
+        order = orderIn;
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        CollectionUtils.shuffle(order, order.length, randomIn);
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean hasNext() {
-        return iterator.hasNext();
+        return next < order.length;
     }
 
     /** {@inheritDoc} */
     @Override
     public MatchMove next() {
-        // prepare MatchMove's lists
-        ArrayList<Match> matches = new ArrayList<>();
-        ArrayList<Boolean> states = new ArrayList<>();
-
         // pick the match to flip
-        Match match = iterator.next();
+        int index = order[next++];
 
-        // add it, flipped, to the move lists
+        List<Match> matches = assignment.getMatches();
+        Match match = matches.get(index);
         boolean newState = !match.confirmed;
-        matches.add(match);
-        states.add(newState);
 
         // also make sure any conflicting match is (flipped to) false
+        int[] conflicts = newState ? assignment.getConflictingMatchIndexes(index) : NO_CONFLICTS;
+        int[] indexes = new int[1 + countConfirmed(matches, conflicts)];
+        long[] states = MatchMove.newConfirmedFlags(indexes.length);
+
+        // add it, flipped, to the move arrays
+        indexes[0] = index;
         if (newState) {
-            assignment.getConflictingMatchIds(match.id)
-                .map(id -> idMap.get(id))
-                .filter(conflict -> conflict.confirmed)
-                .forEach(conflict -> {
-                    matches.add(conflict);
-                    states.add(false);
-                });
+            MatchMove.setConfirmed(states, 0);
+        }
+
+        int i = 1;
+        for (int conflict : conflicts) {
+            if (matches.get(conflict).confirmed) {
+                indexes[i++] = conflict;
+            }
         }
 
-        return new MatchMove(matches, states);
+        return new MatchMove(matches, indexes, states);
+    }
+
+    /**
+     * Counts confirmed matches.
+     *
+     * @param matches all matches of the solution
+     * @param indexes indexes in matches to check
+     * @return the number of confirmed matches
+     */
+    static int countConfirmed(List<Match> matches, int[] indexes) {
+        int count = 0;
+        for (int index : indexes) {
+            if (matches.get(index).confirmed) {
+                count++;
+            }
+        }
+        return count;
     }
 }
@@ -8,9 +8,18 @@ import java.util.Random;
 
 /**
  * A factory for {@link MatchMoveIterator}s.
+ *
+ * A new iterator is created at every step, while the array of match indexes it shuffles is reused for
+ * all steps solving the same working solution.
  */
 public class MatchMoveIteratorFactory implements MoveIteratorFactory<Assignment> {
 
+    /** The working solution order was created for. */
+    private Assignment assignment;
+
+    /** Buffer for indexes of all matches of assignment. */
+    private int[] order;
+
     /** {@inheritDoc} */
     @Override
     public long getSize(ScoreDirector<Assignment> director) {
@@ -21,7 +30,12 @@ public class MatchMoveIteratorFactory implements MoveIteratorFactory<Assignment>
     /** {@inheritDoc} */
     @Override
     public Iterator<MatchMove> createRandomMoveIterator(ScoreDirector<Assignment> director, Random random) {
-        return new MatchMoveIterator(director.getWorkingSolution(), random);
+        Assignment workingSolution = director.getWorkingSolution();
+        if (workingSolution != assignment) {
+            assignment = workingSolution;
+            order = new int[workingSolution.getMatches().size()];
+        }
+        return new MatchMoveIterator(workingSolution, order, random);
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,182 @@
+package com.suse.matcher.solver;
+
+import com.suse.matcher.facts.CentGroup;
+import com.suse.matcher.facts.PotentialMatch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Confirmed {@link PotentialMatch}es of a solved {@link Assignment}, with the cents they consume.
+ *
+ * Potential matches are sorted by system, product, subscription and cents, and stored in parallel arrays
+ * so that output writers can go through them without further lookups or allocations. As they are sorted by
+ * system, they are also indexed by system id.
+ */
+public class MatchResult {
+
+    /** System ids. */
+    private final long[] systemIds;
+
+    /** Product ids. */
+    private final long[] productIds;
+
+    /** Subscription ids. */
+    private final long[] subscriptionIds;
+
+    /** Consumed cents. */
+    private final int[] cents;
+
+    /**
+     * Computes the result of a solved {@link Assignment}.
+     *
+     * Cents of every {@link CentGroup} are split evenly among its confirmed {@link PotentialMatch}es.
+     *
+     * @param assignment the solved assignment
+     */
+    public MatchResult(Assignment assignment) {
+        int[] confirmedIds = assignment.getMatches().stream()
+            .filter(m -> m.confirmed)
+            .mapToInt(m -> m.id)
+            .sorted()
+            .toArray();
+
+        List<PotentialMatch> confirmed = assignment.getProblemFactStream(PotentialMatch.class)
+            .filter(pm -> Arrays.binarySearch(confirmedIds, pm.groupId) >= 0)
+            .collect(Collectors.toList());
+
+        // how many confirmed Potential Matches share one Cent Group
+        Map<Integer, Integer> centGroupMatchesCount = new HashMap<>();
+        for (PotentialMatch pm : confirmed) {
+            centGroupMatchesCount.merge(pm.centGroupId, 1, Integer::sum);
+        }
+
+        // cents of every Cent Group with confirmed Potential Matches
+        Map<Integer, Integer> centGroupsCents = new HashMap<>();
+        assignment.getProblemFactStream(CentGroup.class)
+            .filter(cg -> centGroupMatchesCount.containsKey(cg.id))
+            .forEach(cg -> centGroupsCents.put(cg.id, cg.cents));
+
+        int size = confirmed.size();
+        long[] unsortedSystemIds = new long[size];
+        long[] unsortedProductIds = new long[size];
+        long[] unsortedSubscriptionIds = new long[size];
+        int[] unsortedCents = new int[size];
+        for (int i = 0; i < size; i++) {
+            PotentialMatch pm = confirmed.get(i);
+            unsortedSystemIds[i] = pm.systemId;
+            unsortedProductIds[i] = pm.productId;
+            unsortedSubscriptionIds[i] = pm.subscriptionId;
+            unsortedCents[i] = centGroupsCents.get(pm.centGroupId) / centGroupMatchesCount.get(pm.centGroupId);
+        }
+
+        int[] order = IntStream.range(0, size)
+            .boxed()
+            .sorted(Comparator.<Integer>comparingLong(i -> unsortedSystemIds[i])
+                .thenComparingLong(i -> unsortedProductIds[i])
+                .thenComparingLong(i -> unsortedSubscriptionIds[i])
+                .thenComparingInt(i -> unsortedCents[i]))
+            .mapToInt(i -> i)
+            .toArray();
+
+        systemIds = new long[size];
+        productIds = new long[size];
+        subscriptionIds = new long[size];
+        cents = new int[size];
+        for (int i = 0; i < size; i++) {
+            systemIds[i] = unsortedSystemIds[order[i]];
+            productIds[i] = unsortedProductIds[order[i]];
+            subscriptionIds[i] = unsortedSubscriptionIds[order[i]];
+            cents[i] = unsortedCents[order[i]];
+        }
+    }
+
+    /**
+     * Returns the number of confirmed {@link PotentialMatch}es.
+     *
+     * @return the number of confirmed potential matches
+     */
+    public int size() {
+        return systemIds.length;
+    }
+
+    /**
+     * Returns the system id of a confirmed {@link PotentialMatch}.
+     *
+     * @param index the index of the potential match, in sorting order
+     * @return the system id
+     */
+    public long getSystemId(int index) {
+        return systemIds[index];
+    }
+
+    /**
+     * Returns the product id of a confirmed {@link PotentialMatch}.
+     *
+     * @param index the index of the potential match, in sorting order
+     * @return the product id
+     */
+    public long getProductId(int index) {
+        return productIds[index];
+    }
+
+    /**
+     * Returns the subscription id of a confirmed {@link PotentialMatch}.
+     *
+     * @param index the index of the potential match, in sorting order
+     * @return the subscription id
+     */
+    public long getSubscriptionId(int index) {
+        return subscriptionIds[index];
+    }
+
+    /**
+     * Returns the cents consumed by a confirmed {@link PotentialMatch}.
+     *
+     * @param index the index of the potential match, in sorting order
+     * @return the cents
+     */
+    public int getCents(int index) {
+        return cents[index];
+    }
+
+    /**
+     * Returns true if a system is matched to a subscription, for any product.
+     *
+     * @param systemId the system id
+     * @param subscriptionId the subscription id
+     * @return true if any confirmed {@link PotentialMatch} has the system and subscription
+     */
+    public boolean isMatched(long systemId, long subscriptionId) {
+        for (int i = firstIndexOf(systemId); i < systemIds.length && systemIds[i] == systemId; i++) {
+            if (subscriptionIds[i] == subscriptionId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index of the first potential match of a system, or of the first potential match of a system
+     * with a greater id if there is none.
+     */
+    private int firstIndexOf(long systemId) {
+        int low = 0;
+        int high = systemIds.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (systemIds[middle] < systemId) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
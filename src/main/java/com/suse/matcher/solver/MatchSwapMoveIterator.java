@@ -15,20 +15,9 @@
 
 package com.suse.matcher.solver;
 
-import com.suse.matcher.facts.PotentialMatch;
-import com.suse.matcher.util.CollectionUtils;
-
-import org.apache.commons.lang3.BooleanUtils;
-import org.apache.commons.lang3.tuple.Pair;
-
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 /**
  * Generates {@link MatchMove}s.
@@ -37,103 +26,68 @@ import java.util.stream.Collectors;
  * of two {@link Match}es that have same subscription and different "confirmed" flag.
  *
  * All "confirmed" flags of incompatible {@link Match}es are flipped to false.
+ *
+ * Pairs of matches are computed by {@link SubscriptionMatches} in reused arrays.
  */
 public class MatchSwapMoveIterator implements Iterator<MatchMove> {
 
     /** Solution instance. */
     private final Assignment assignment;
 
-    /** Iterator over all matches. */
-    private final Iterator<Pair<PotentialMatch, PotentialMatch>> iterator;
+    /** Matches grouped by subscription and confirmed flag. */
+    private final SubscriptionMatches subscriptionMatches;
 
-    /** Map from id to {@link Match}. */
-    private final Map<Integer, Match> idMap;
+    /** Number of pairs. */
+    private final int pairCount;
+
+    /** Next pair to generate a move from. */
+    private int next;
 
     /**
      * Standard constructor.
      * @param assignmentIn a solution instance
+     * @param subscriptionMatchesIn potential matches of the solution instance grouped by subscription
      * @param randomIn a random number generator instance
      */
-    public MatchSwapMoveIterator(Assignment assignmentIn, Random randomIn) {
+    public MatchSwapMoveIterator(Assignment assignmentIn, SubscriptionMatches subscriptionMatchesIn, Random randomIn) {
         assignment = assignmentIn;
-
-        List<Match> orderedMatches = new ArrayList<>(assignment.getMatches());
-
-        idMap = orderedMatches.stream()
-                .collect(Collectors.toMap(
-                        match -> match.id,
-                        match -> match
-                ));
-
-        // subscription id -> confirmed/not confirmed -> shuffled list of matches
-        Map<Long, Map<Boolean, List<PotentialMatch>>> subscriptionMatches = assignmentIn.getSortedPotentialMatchesCache()
-                .stream()
-                .collect(Collectors.groupingBy(
-                    pm -> pm.subscriptionId,
-                    TreeMap::new,
-                    Collectors.groupingBy(
-                        pm -> idMap.get(pm.groupId).confirmed,
-                        TreeMap::new,
-                        CollectionUtils.toShuffledList(randomIn)
-                    )
-                ));
-
-        // Starting from the subscription id -> map of matches, build a shuffled list of pairs of matches containing the
-        // subscription, such that a confirmed match is on the left and not confirmed match is on the right in the match
-        iterator = subscriptionMatches.values()
-                                      .stream()
-                                      .map(map -> CollectionUtils.zip(map.get(true), map.get(false), Pair::of))
-                                      .flatMap(Collection::stream)
-                                      .collect(CollectionUtils.toShuffledList(randomIn))
-                                      .iterator();
+        subscriptionMatches = subscriptionMatchesIn;
+        pairCount = subscriptionMatches.shufflePairs(assignment.getMatches(), randomIn);
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean hasNext() {
-        return iterator.hasNext();
+        return next < pairCount;
     }
 
     /** {@inheritDoc} */
     @Override
     public MatchMove next() {
-        // prepare MatchMove's lists
-        ArrayList<Match> matches = new ArrayList<>();
-        ArrayList<Boolean> states = new ArrayList<>();
+        // pick the matches to change: a confirmed one and an unconfirmed one with the same subscription
+        int index1 = subscriptionMatches.getConfirmed(next);
+        int index2 = subscriptionMatches.getUnconfirmed(next);
+        next++;
 
-        // pick the matches to change
-        Pair<PotentialMatch, PotentialMatch> next = iterator.next();
-        Match match1 = idMap.get(next.getLeft().groupId);
-        Match match2 = idMap.get(next.getRight().groupId);
+        // also make sure any match conflicting with the newly confirmed one is (flipped to) false
+        List<Match> matches = assignment.getMatches();
+        int[] conflicts = assignment.getConflictingMatchIndexes(index2);
+        int[] indexes = new int[2 + MatchMoveIterator.countConfirmed(matches, conflicts)];
+        long[] states = MatchMove.newConfirmedFlags(indexes.length);
 
         // swap their "confirmed" flag
-        matches.add(match1);
-        states.add(match2.confirmed);
-        matches.add(match2);
-        states.add(match1.confirmed);
-
-        // also make sure any conflicting match is (flipped to) false
-        if (BooleanUtils.isTrue(match2.confirmed)) {
-            assignment.getConflictingMatchIds(match1.id)
-                    .map(id -> idMap.get(id))
-                    .filter(conflict -> conflict.confirmed)
-                    .forEach(conflict -> {
-                        matches.add(conflict);
-                        states.add(false);
-                    });
-        }
-
-        if (BooleanUtils.isTrue(match1.confirmed)) {
-            assignment.getConflictingMatchIds(match2.id)
-                    .map(id -> idMap.get(id))
-                    .filter(conflict -> conflict.confirmed)
-                    .forEach(conflict -> {
-                        matches.add(conflict);
-                        states.add(false);
-                    });
+        indexes[0] = index1;
+        indexes[1] = index2;
+        MatchMove.setConfirmed(states, 1);
+
+        int i = 2;
+        for (int conflict : conflicts) {
+            if (matches.get(conflict).confirmed) {
+                indexes[i++] = conflict;
+            }
         }
 
-        return new MatchMove(matches, states);
+        return new MatchMove(matches, indexes, states);
     }
 
 }
@@ -21,8 +21,20 @@ import org.optaplanner.core.impl.score.director.ScoreDirector;
 import java.util.Iterator;
 import java.util.Random;
 
+/**
+ * A factory for {@link MatchSwapMoveIterator}s.
+ *
+ * A new iterator is created at every step, while potential matches grouped by subscription are kept for all
+ * steps solving the same working solution.
+ */
 public class MatchSwapMoveIteratorFactory implements MoveIteratorFactory<Assignment> {
 
+    /** The working solution subscriptionMatches was created for. */
+    private Assignment assignment;
+
+    /** Potential matches of assignment, grouped by subscription. */
+    private SubscriptionMatches subscriptionMatches;
+
     /** {@inheritDoc} */
     @Override
     public long getSize(ScoreDirector<Assignment> director) {
@@ -33,7 +45,12 @@ public class MatchSwapMoveIteratorFactory implements MoveIteratorFactory<Assignm
     /** {@inheritDoc} */
     @Override
     public Iterator<MatchMove> createRandomMoveIterator(ScoreDirector<Assignment> director, Random random) {
-        return new MatchSwapMoveIterator(director.getWorkingSolution(), random);
+        Assignment workingSolution = director.getWorkingSolution();
+        if (workingSolution != assignment) {
+            assignment = workingSolution;
+            subscriptionMatches = new SubscriptionMatches(workingSolution);
+        }
+        return new MatchSwapMoveIterator(workingSolution, subscriptionMatches, random);
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,135 @@
+package com.suse.matcher.solver;
+
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.util.CollectionUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PotentialMatch}es grouped by subscription, used to generate swap moves.
+ *
+ * Groups are computed once per working solution, as indexes of the {@link Match}es the potential matches belong to.
+ * At every step they are split by confirmed flag, shuffled and paired into reused arrays, so that no
+ * collections are allocated while solving.
+ */
+public class SubscriptionMatches {
+
+    /** Groups: entries of subscription i are between starts[i] and starts[i + 1]. */
+    private final int[] starts;
+
+    /** Match index of every potential match, grouped by subscription and sorted within groups. */
+    private final int[] matchIndexes;
+
+    /** Buffer for confirmed matches of one subscription. */
+    private final int[] confirmed;
+
+    /** Buffer for unconfirmed matches of one subscription. */
+    private final int[] unconfirmed;
+
+    /** Confirmed matches of the current pairs. */
+    private final int[] confirmedPairs;
+
+    /** Unconfirmed matches of the current pairs. */
+    private final int[] unconfirmedPairs;
+
+    /**
+     * Standard constructor.
+     *
+     * @param assignment the working solution
+     */
+    public SubscriptionMatches(Assignment assignment) {
+        Map<Long, List<Integer>> groups = assignment.getSortedPotentialMatchesCache().stream()
+            .collect(Collectors.groupingBy(
+                pm -> pm.subscriptionId,
+                TreeMap::new,
+                Collectors.mapping(pm -> assignment.getMatchIndex(pm.groupId), Collectors.toList())
+            ));
+
+        int size = groups.values().stream().mapToInt(List::size).sum();
+        int maxGroupSize = groups.values().stream().mapToInt(List::size).max().orElse(0);
+        starts = new int[groups.size() + 1];
+        matchIndexes = new int[size];
+        confirmed = new int[maxGroupSize];
+        unconfirmed = new int[maxGroupSize];
+        confirmedPairs = new int[size / 2];
+        unconfirmedPairs = new int[size / 2];
+
+        int group = 0;
+        int position = 0;
+        for (List<Integer> indexes : groups.values()) {
+            starts[group++] = position;
+            for (int index : indexes) {
+                matchIndexes[position++] = index;
+            }
+        }
+        starts[group] = position;
+    }
+
+    /**
+     * Pairs confirmed and unconfirmed matches with the same subscription, in random order.
+     *
+     * For every subscription, confirmed and unconfirmed matches are shuffled separately and zipped together, then all
+     * pairs are shuffled. Pairs are valid until the next call.
+     *
+     * @param matches matches of the working solution
+     * @param random a random number generator instance
+     * @return the number of pairs
+     */
+    public int shufflePairs(List<Match> matches, Random random) {
+        int pairCount = 0;
+        for (int group = 0; group < starts.length - 1; group++) {
+            int confirmedCount = 0;
+            int unconfirmedCount = 0;
+            for (int i = starts[group]; i < starts[group + 1]; i++) {
+                if (matches.get(matchIndexes[i]).confirmed) {
+                    confirmed[confirmedCount++] = matchIndexes[i];
+                }
+                else {
+                    unconfirmed[unconfirmedCount++] = matchIndexes[i];
+                }
+            }
+
+            // keep this order: it determines which random numbers are used for which matches, thus the solution
+            CollectionUtils.shuffle(unconfirmed, unconfirmedCount, random);
+            CollectionUtils.shuffle(confirmed, confirmedCount, random);
+
+            for (int i = 0; i < Math.min(confirmedCount, unconfirmedCount); i++) {
+                confirmedPairs[pairCount] = confirmed[i];
+                unconfirmedPairs[pairCount] = unconfirmed[i];
+                pairCount++;
+            }
+        }
+
+        // same algorithm as Collections.shuffle(), moving pairs together
+        for (int i = pairCount; i > 1; i--) {
+            int j = random.nextInt(i);
+            CollectionUtils.swap(confirmedPairs, i - 1, j);
+            CollectionUtils.swap(unconfirmedPairs, i - 1, j);
+        }
+        return pairCount;
+    }
+
+    /**
+     * Returns the index of the confirmed match of a pair.
+     *
+     * @param pair the pair number, lower than the last result of {@link #shufflePairs(List, Random)}
+     * @return the match index
+     */
+    public int getConfirmed(int pair) {
+        return confirmedPairs[pair];
+    }
+
+    /**
+     * Returns the index of the unconfirmed match of a pair.
+     *
+     * @param pair the pair number, lower than the last result of {@link #shufflePairs(List, Random)}
+     * @return the match index
+     */
+    public int getUnconfirmed(int pair) {
+        return unconfirmedPairs[pair];
+    }
+}
@@ -85,4 +85,31 @@ public final class CollectionUtils {
             return list;
         });
     }
+
+    /**
+     * Shuffles the first elements of an array with the same algorithm as {@link Collections#shuffle(List, Random)},
+     * so that the same random numbers produce the same order
+     *
+     * @param array the array
+     * @param length the number of elements to shuffle
+     * @param random the random numbers generator
+     */
+    public static void shuffle(int[] array, int length, Random random) {
+        for (int i = length; i > 1; i--) {
+            swap(array, i - 1, random.nextInt(i));
+        }
+    }
+
+    /**
+     * Swaps two elements of an array
+     *
+     * @param array the array
+     * @param i the index of the first element
+     * @param j the index of the second element
+     */
+    public static void swap(int[] array, int i, int j) {
+        int tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
 }
@@ -0,0 +1,49 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonOutput;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests {@link BinaryIO} on scenario data.
+ */
+class BinaryIOTest {
+
+    /** Utility to convert to JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    /**
+     * Tests that scenario data converted to binary format and back is unchanged.
+     */
+    @DisplayName("Convert test scenarios to binary format and back")
+    @ParameterizedTest(name = "{1}")
+    @MethodSource("com.suse.matcher.MatcherScenariosTest#listScenarios")
+    void testRoundTrip(int scenarioNumber, String description) throws IOException {
+        BinaryIO binaryIO = new BinaryIO();
+
+        JsonInput input = MatcherScenariosTest.getJsonInput(scenarioNumber);
+        ByteArrayOutputStream inputBytes = new ByteArrayOutputStream();
+        binaryIO.writeInput(input, inputBytes);
+        JsonInput actualInput = binaryIO.readInput(new ByteArrayInputStream(inputBytes.toByteArray()));
+
+        JsonOutput output = MatcherScenariosTest.getJsonOutput(scenarioNumber);
+        ByteArrayOutputStream outputBytes = new ByteArrayOutputStream();
+        binaryIO.writeOutput(output, outputBytes);
+        JsonOutput actualOutput = binaryIO.readOutput(new ByteArrayInputStream(outputBytes.toByteArray()));
+
+        assertAll("Check binary round trip",
+            () -> assertEquals(JSON_IO.toJson(input), JSON_IO.toJson(actualInput), "Input JSON does not match"),
+            () -> assertEquals(JSON_IO.toJson(output), JSON_IO.toJson(actualOutput), "Output JSON does not match")
+        );
+    }
+}
@@ -0,0 +1,168 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.suse.matcher.facts.CentGroup;
+import com.suse.matcher.facts.InstalledProduct;
+import com.suse.matcher.facts.PenaltyGroup;
+import com.suse.matcher.facts.PinnedMatch;
+import com.suse.matcher.facts.PotentialMatch;
+import com.suse.matcher.facts.Subscription;
+import com.suse.matcher.solver.Assignment;
+import com.suse.matcher.solver.Match;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests {@link Decomposer}.
+ */
+class DecomposerTest {
+
+    /**
+     * Tests that Matches with the same subscription on different (system, product) couples are not split.
+     */
+    @Test
+    void testSharedSubscription() {
+        Assignment assignment = newAssignment(List.of(
+            new PotentialMatch(1L, 10L, 100L, 1, 1),
+            new PotentialMatch(2L, 20L, 100L, 2, 2)
+        ));
+
+        List<Assignment> components = Decomposer.split(assignment);
+        assertEquals(1, components.size());
+        assertSame(assignment, components.get(0));
+    }
+
+    /**
+     * Tests that Matches for the same (system, product) couple are not split.
+     */
+    @Test
+    void testSharedInstalledProduct() {
+        assertEquals(1, Decomposer.split(newAssignment(List.of(
+            new PotentialMatch(1L, 10L, 100L, 1, 1),
+            new PotentialMatch(1L, 10L, 200L, 2, 2)
+        ))).size());
+    }
+
+    /**
+     * Tests that Matches in the same cent group are not split.
+     */
+    @Test
+    void testSharedCentGroup() {
+        assertEquals(1, Decomposer.split(newAssignment(List.of(
+            new PotentialMatch(1L, 10L, 100L, 5, 1),
+            new PotentialMatch(2L, 20L, 200L, 5, 2)
+        ))).size());
+    }
+
+    /**
+     * Tests that Matches connected through other Matches are not split, and that unrelated ones are.
+     */
+    @Test
+    void testTransitive() {
+        List<Assignment> components = Decomposer.split(newAssignment(List.of(
+            new PotentialMatch(1L, 10L, 100L, 1, 1),
+            new PotentialMatch(2L, 20L, 100L, 2, 2),
+            new PotentialMatch(2L, 20L, 200L, 3, 3),
+            new PotentialMatch(3L, 30L, 300L, 4, 4),
+            new PotentialMatch(4L, 40L, 200L, 3, 5)
+        )));
+
+        assertEquals(2, components.size());
+        assertEquals(List.of(1, 2, 3, 5), getMatchIds(components.get(0)));
+        assertEquals(List.of(4), getMatchIds(components.get(1)));
+    }
+
+    /**
+     * Tests that problem facts go to the component of their Matches.
+     */
+    @Test
+    void testFacts() {
+        List<Assignment> components = Decomposer.split(newAssignment(
+            List.of(
+                new PotentialMatch(1L, 10L, 100L, 1, 1),
+                new PotentialMatch(1L, 20L, 200L, 2, 2)
+            ),
+            new Subscription(100L, null, "Subscription 100", 1, null, null, null),
+            new Subscription(200L, null, "Subscription 200", 1, null, null, null),
+            new Subscription(300L, null, "Unmatched subscription", 1, null, null, null),
+            new InstalledProduct(1L, 10L),
+            new InstalledProduct(1L, 20L),
+            new CentGroup(1, 100),
+            new CentGroup(2, 100),
+            new PinnedMatch(1L, 200L),
+            new PenaltyGroup(7, 1L)
+        ));
+
+        assertEquals(2, components.size());
+        Assignment first = components.get(0);
+        Assignment second = components.get(1);
+
+        assertEquals(List.of(100L), first.getProblemFactStream(Subscription.class).map(s -> s.id)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(200L), second.getProblemFactStream(Subscription.class).map(s -> s.id)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(new InstalledProduct(1L, 10L)), first.getProblemFactStream(InstalledProduct.class)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(new InstalledProduct(1L, 20L)), second.getProblemFactStream(InstalledProduct.class)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(new CentGroup(1, 100)), first.getProblemFactStream(CentGroup.class)
+                .collect(Collectors.toList()));
+        assertEquals(0, first.getProblemFactStream(PinnedMatch.class).count());
+        assertEquals(1, second.getProblemFactStream(PinnedMatch.class).count());
+
+        // the system has products in both components
+        assertEquals(1, first.getProblemFactStream(PenaltyGroup.class).count());
+        assertEquals(1, second.getProblemFactStream(PenaltyGroup.class).count());
+
+        assertEquals(1, first.getSortedPotentialMatchesCache().size());
+        assertEquals(1, second.getSortedPotentialMatchesCache().size());
+    }
+
+    /**
+     * Tests that solutions of components are merged back.
+     */
+    @Test
+    void testMerge() {
+        Assignment assignment = newAssignment(List.of(
+            new PotentialMatch(1L, 10L, 100L, 1, 1),
+            new PotentialMatch(2L, 20L, 200L, 2, 2),
+            new PotentialMatch(3L, 30L, 300L, 3, 3)
+        ));
+        List<Assignment> components = Decomposer.split(assignment);
+        assertEquals(3, components.size());
+
+        for (int i = 0; i < components.size(); i++) {
+            components.get(i).getMatches().get(0).confirmed = i != 1;
+            components.get(i).setScore(HardSoftScore.of(0, 100 * i));
+        }
+        Decomposer.merge(assignment, components);
+
+        assertEquals(List.of(true, false, true), assignment.getMatches().stream()
+                .map(m -> m.confirmed)
+                .collect(Collectors.toList()));
+        assertEquals(HardSoftScore.of(0, 300), assignment.getScore());
+    }
+
+    private static Assignment newAssignment(List<PotentialMatch> potentialMatches, Object... otherFacts) {
+        List<Object> facts = new ArrayList<>(potentialMatches);
+        facts.addAll(List.of(otherFacts));
+
+        Matcher matcher = new Matcher(true);
+        List<Match> matches = matcher.getMatches(facts);
+        return new Assignment(matches, facts, matcher.getConflictMap(matches, facts),
+                potentialMatches.stream().sorted().collect(Collectors.toList()));
+    }
+
+    private static List<Integer> getMatchIds(Assignment assignment) {
+        return assignment.getMatches().stream()
+            .map(m -> m.id)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,47 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests {@link FactConverter} on scenario data.
+ */
+class FactConverterTest {
+
+    /** Utility to convert to JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    /**
+     * Tests that streaming scenario data from a reader gives the same facts, in the same order, as reading it into a
+     * {@link com.suse.matcher.json.JsonInput} first.
+     */
+    @DisplayName("Convert test scenarios streaming input")
+    @ParameterizedTest(name = "{1}")
+    @MethodSource("com.suse.matcher.MatcherScenariosTest#listScenarios")
+    void testStreaming(int scenarioNumber, String description) throws IOException {
+        Collection<Object> expected = FactConverter.convertToFacts(MatcherScenariosTest.getJsonInput(scenarioNumber),
+                new IdInterner());
+        Collection<Object> actual;
+        try (Reader reader = new StringReader(MatcherScenariosTest.getContentAsString(scenarioNumber, "input.json"))) {
+            actual = FactConverter.convertToFacts(reader, new IdInterner());
+        }
+
+        assertEquals(toJson(expected), toJson(actual));
+    }
+
+    private static List<String> toJson(Collection<Object> facts) {
+        return facts.stream()
+            .map(f -> f.getClass().getSimpleName() + JSON_IO.toJson(f))
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,73 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests {@link IdInterner}.
+ */
+class IdInternerTest {
+
+    /**
+     * Tests that equal tuples get the same id and ids are assigned in order.
+     */
+    @Test
+    void testEqualTuples() {
+        IdInterner interner = new IdInterner();
+        assertEquals(0, interner.id(1L, 2L));
+        assertEquals(1, interner.id(2L, 1L));
+        assertEquals(0, interner.id(1L, 2L));
+        assertEquals(2, interner.id("a", 1L));
+        assertEquals(2, interner.id(new String("a"), 1L));
+        assertEquals(3, interner.size());
+    }
+
+    /**
+     * Tests that tuples with different shapes never get the same id, even with equal values.
+     */
+    @Test
+    void testShapes() {
+        IdInterner interner = new IdInterner();
+        Set<Integer> ids = new HashSet<>();
+        ids.add(interner.id(1L, 2L));
+        ids.add(interner.id(1L, 2L, 0L));
+        ids.add(interner.id(1, 2L));
+        ids.add(interner.id("1", 2L));
+        ids.add(interner.id("1", 2, 0));
+        assertEquals(5, ids.size());
+        assertEquals(5, interner.size());
+    }
+
+    /**
+     * Tests that tuples differing in one value only get different ids.
+     */
+    @Test
+    void testDifferentValues() {
+        IdInterner interner = new IdInterner();
+        assertNotEquals(interner.id(1L, 2L, 3L), interner.id(1L, 2L, 4L));
+        assertNotEquals(interner.id("a", 1, 2), interner.id("b", 1, 2));
+        assertNotEquals(interner.id(0, 0L), interner.id(0, -1L));
+        assertNotEquals(interner.id(Long.MIN_VALUE, Long.MAX_VALUE), interner.id(Long.MAX_VALUE, Long.MIN_VALUE));
+    }
+
+    /**
+     * Tests that ids are stable while tables grow.
+     */
+    @Test
+    void testGrowth() {
+        IdInterner interner = new IdInterner();
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, interner.id(i, i * 31L));
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, interner.id(i, i * 31L));
+        }
+        assertEquals(count, interner.size());
+    }
+}
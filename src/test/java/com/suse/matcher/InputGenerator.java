@@ -0,0 +1,407 @@
+package com.suse.matcher;
+
+import com.suse.matcher.facts.Subscription.Policy;
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.json.JsonMatch;
+import com.suse.matcher.json.JsonProduct;
+import com.suse.matcher.json.JsonSubscription;
+import com.suse.matcher.json.JsonSystem;
+import com.suse.matcher.json.JsonVirtualizationGroup;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Generates synthetic inputs of configurable size, to test how the matcher scales.
+ *
+ * Generated inventories contain:
+ * - virtual hosts, each with a number of guests
+ * - virtualization groups, each with a number of guests with unknown host
+ * - standalone physical systems
+ * - product families, each made of a base product and some extensions, with systems having one base product and
+ *   some of its extensions installed
+ * - subscriptions to all products in a family, with part numbers from {@link PartNumberCatalog} chosen according to
+ *   a policy distribution
+ *
+ * Output only depends on parameters, including the random seed.
+ *
+ * Can also be used from the command line to write input.json files, see {@link #main(String[])}.
+ */
+public class InputGenerator {
+
+    /** Timestamp of generated inputs. */
+    private static final Instant TIMESTAMP = Instant.parse("2024-01-01T00:00:00Z");
+
+    /** Virtualization group type. */
+    private static final String VIRTUALIZATION_GROUP_TYPE = "virtual_host_manager_vmware";
+
+    /** Possible CPU counts. */
+    private static final int[] CPUS = {1, 2, 4, 8, 16, 32};
+
+    /** Total number of systems. */
+    private int systems = 1_000;
+
+    /** Number of guests of each virtual host or virtualization group. */
+    private int guestsPerHost = 4;
+
+    /** Fraction of systems which are virtual hosts or their guests. */
+    private double virtualizedFraction = 0.6;
+
+    /** Number of virtualization groups. */
+    private int virtualizationGroups = 2;
+
+    /** Number of product families. */
+    private int productFamilies = 5;
+
+    /** Number of extensions in each product family. */
+    private int extensionsPerFamily = 3;
+
+    /** Number of subscriptions. */
+    private int subscriptions = 50;
+
+    /** Relative weight of each subscription policy. */
+    private Map<Policy, Integer> policyWeights = new EnumMap<>(Map.of(
+        Policy.PHYSICAL_ONLY, 2,
+        Policy.UNLIMITED_VIRTUALIZATION, 3,
+        Policy.ONE_TWO, 2,
+        Policy.INSTANCE, 2,
+        Policy.INHERITED_VIRTUALIZATION, 1
+    ));
+
+    /** Number of pinned matches. */
+    private int pinnedMatches = 10;
+
+    /** Random seed. */
+    private long seed = 0L;
+
+    /**
+     * Sets the total number of systems.
+     *
+     * @param systemsIn the number of systems
+     * @return this generator
+     */
+    public InputGenerator systems(int systemsIn) {
+        systems = systemsIn;
+        return this;
+    }
+
+    /**
+     * Sets the number of guests of each virtual host or virtualization group.
+     *
+     * @param guestsPerHostIn the number of guests
+     * @return this generator
+     */
+    public InputGenerator guestsPerHost(int guestsPerHostIn) {
+        guestsPerHost = guestsPerHostIn;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of systems which are virtual hosts or their guests.
+     *
+     * @param virtualizedFractionIn the fraction, between 0 and 1
+     * @return this generator
+     */
+    public InputGenerator virtualizedFraction(double virtualizedFractionIn) {
+        virtualizedFraction = virtualizedFractionIn;
+        return this;
+    }
+
+    /**
+     * Sets the number of virtualization groups.
+     *
+     * @param virtualizationGroupsIn the number of groups
+     * @return this generator
+     */
+    public InputGenerator virtualizationGroups(int virtualizationGroupsIn) {
+        virtualizationGroups = virtualizationGroupsIn;
+        return this;
+    }
+
+    /**
+     * Sets the number of product families.
+     *
+     * @param productFamiliesIn the number of families
+     * @return this generator
+     */
+    public InputGenerator productFamilies(int productFamiliesIn) {
+        productFamilies = productFamiliesIn;
+        return this;
+    }
+
+    /**
+     * Sets the number of extensions in each product family.
+     *
+     * @param extensionsPerFamilyIn the number of extensions
+     * @return this generator
+     */
+    public InputGenerator extensionsPerFamily(int extensionsPerFamilyIn) {
+        extensionsPerFamily = extensionsPerFamilyIn;
+        return this;
+    }
+
+    /**
+     * Sets the number of subscriptions.
+     *
+     * @param subscriptionsIn the number of subscriptions
+     * @return this generator
+     */
+    public InputGenerator subscriptions(int subscriptionsIn) {
+        subscriptions = subscriptionsIn;
+        return this;
+    }
+
+    /**
+     * Sets the relative weight of each subscription policy. Policies not in the map are not used.
+     *
+     * @param policyWeightsIn the weights
+     * @return this generator
+     */
+    public InputGenerator policyWeights(Map<Policy, Integer> policyWeightsIn) {
+        policyWeights = new EnumMap<>(policyWeightsIn);
+        return this;
+    }
+
+    /**
+     * Sets the number of pinned matches.
+     *
+     * @param pinnedMatchesIn the number of pinned matches
+     * @return this generator
+     */
+    public InputGenerator pinnedMatches(int pinnedMatchesIn) {
+        pinnedMatches = pinnedMatchesIn;
+        return this;
+    }
+
+    /**
+     * Sets the random seed.
+     *
+     * @param seedIn the seed
+     * @return this generator
+     */
+    public InputGenerator seed(long seedIn) {
+        seed = seedIn;
+        return this;
+    }
+
+    /**
+     * Generates an input.
+     *
+     * @return the input
+     */
+    public JsonInput generate() {
+        Random random = new Random(seed);
+
+        // products: ids of family f are f * 1000 (base product) and following (extensions)
+        List<JsonProduct> products = new ArrayList<>();
+        List<List<Long>> familyProductIds = new ArrayList<>();
+        for (int f = 1; f <= productFamilies; f++) {
+            List<Long> ids = new ArrayList<>();
+            for (int e = 0; e <= extensionsPerFamily; e++) {
+                long id = f * 1000L + e;
+                boolean base = e == 0;
+                products.add(new JsonProduct(id, (base ? "Base product " : "Extension " + e + " of product ") + f,
+                        "CLASS-" + f, false, base));
+                ids.add(id);
+            }
+            familyProductIds.add(ids);
+        }
+
+        // systems: hosts followed by their guests, then guests in virtualization groups, then physical systems
+        List<JsonSystem> systemList = new ArrayList<>();
+        List<JsonVirtualizationGroup> groups = new ArrayList<>();
+        long nextId = 1;
+        int virtualized = (int) (systems * virtualizedFraction);
+        int hosts = virtualized / (guestsPerHost + 1);
+        for (int h = 0; h < hosts; h++) {
+            JsonSystem host = newSystem(nextId++, "host", randomCpus(random), true, random, familyProductIds);
+            systemList.add(host);
+            for (int g = 0; g < guestsPerHost; g++) {
+                JsonSystem guest = newSystem(nextId++, "guest", randomCpus(random), false, random, familyProductIds);
+                host.getVirtualSystemIds().add(guest.getId());
+                systemList.add(guest);
+            }
+        }
+        for (int v = 1; v <= virtualizationGroups && systemList.size() + guestsPerHost <= systems; v++) {
+            Set<Long> guestIds = new LinkedHashSet<>();
+            for (int g = 0; g < guestsPerHost; g++) {
+                JsonSystem guest = newSystem(nextId++, "cloud-guest", randomCpus(random), false, random, familyProductIds);
+                guestIds.add(guest.getId());
+                systemList.add(guest);
+            }
+            groups.add(new JsonVirtualizationGroup((long) v, "Group " + v, VIRTUALIZATION_GROUP_TYPE, guestIds));
+        }
+        while (systemList.size() < systems) {
+            systemList.add(newSystem(nextId++, "physical", randomCpus(random), true, random, familyProductIds));
+        }
+
+        // subscriptions: part numbers by policy, sorted for reproducibility
+        Map<Policy, List<String>> partNumbers = new TreeMap<>();
+        PartNumberCatalog.getEntries().forEach((partNumber, entry) -> {
+            if (policyWeights.getOrDefault(entry.getPolicy(), 0) > 0) {
+                partNumbers.computeIfAbsent(entry.getPolicy(), k -> new ArrayList<>()).add(partNumber);
+            }
+        });
+        partNumbers.values().forEach(l -> l.sort(null));
+        List<Policy> weightedPolicies = new ArrayList<>();
+        partNumbers.keySet().forEach(p -> {
+            for (int i = 0; i < policyWeights.get(p); i++) {
+                weightedPolicies.add(p);
+            }
+        });
+        if (subscriptions > 0 && weightedPolicies.isEmpty()) {
+            throw new IllegalStateException("No part numbers found for policies " + policyWeights.keySet());
+        }
+
+        Date start = Date.from(TIMESTAMP.minus(365, ChronoUnit.DAYS));
+        Date end = Date.from(TIMESTAMP.plus(365, ChronoUnit.DAYS));
+        int averageQuantity = Math.max(1, 2 * systems / Math.max(1, subscriptions));
+        List<JsonSubscription> subscriptionList = new ArrayList<>();
+        for (int s = 1; s <= subscriptions; s++) {
+            List<String> candidates = partNumbers.get(weightedPolicies.get(random.nextInt(weightedPolicies.size())));
+            String partNumber = candidates.get(random.nextInt(candidates.size()));
+            Set<Long> productIds = new LinkedHashSet<>(familyProductIds.get(random.nextInt(productFamilies)));
+            subscriptionList.add(new JsonSubscription((long) s, partNumber, "Subscription " + s,
+                    1 + random.nextInt(averageQuantity), start, end, "generated", productIds));
+        }
+
+        // pinned matches: random systems and subscriptions, valid or not
+        List<JsonMatch> pins = new ArrayList<>();
+        for (int p = 0; p < pinnedMatches && !subscriptionList.isEmpty(); p++) {
+            JsonSystem system = systemList.get(random.nextInt(systemList.size()));
+            JsonSubscription subscription = subscriptionList.get(random.nextInt(subscriptionList.size()));
+            pins.add(new JsonMatch(system.getId(), subscription.getId(), null, null));
+        }
+
+        return new JsonInput(Date.from(TIMESTAMP), systemList, groups, products, subscriptionList, pins);
+    }
+
+    private static JsonSystem newSystem(long id, String kind, int cpus, boolean physical, Random random,
+            List<List<Long>> familyProductIds) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        if (!familyProductIds.isEmpty()) {
+            // one base product and a random selection of its extensions
+            List<Long> family = familyProductIds.get(random.nextInt(familyProductIds.size()));
+            productIds.add(family.get(0));
+            for (Long extension : family.subList(1, family.size())) {
+                if (random.nextBoolean()) {
+                    productIds.add(extension);
+                }
+            }
+        }
+        return new JsonSystem(id, kind + "-" + id, cpus, physical, kind.equals("host"), new LinkedHashSet<>(),
+                productIds);
+    }
+
+    private static int randomCpus(Random random) {
+        return CPUS[random.nextInt(CPUS.length)];
+    }
+
+    /**
+     * Writes a generated input JSON to standard output or to a file.
+     *
+     * @param args command line arguments, see --help
+     * @throws IOException if the output file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Options opts = new Options();
+        opts.addOption("h", "help", false, "show this help");
+        opts.addOption("o", "output", true, "output file (Default: standard output)");
+        opts.addOption("s", "systems", true, "total number of systems (Default: 1000)");
+        opts.addOption("g", "guests-per-host", true, "guests of each host or virtualization group (Default: 4)");
+        opts.addOption("f", "virtualized-fraction", true, "fraction of hosts and their guests (Default: 0.6)");
+        opts.addOption("v", "virtualization-groups", true, "number of virtualization groups (Default: 2)");
+        opts.addOption("p", "product-families", true, "number of product families (Default: 5)");
+        opts.addOption("e", "extensions-per-family", true, "extensions in each product family (Default: 3)");
+        opts.addOption("u", "subscriptions", true, "number of subscriptions (Default: 50)");
+        opts.addOption("w", "policy-weights", true, "relative weights of policies, eg. ONE_TWO=1,INSTANCE=2 " +
+                "(Default: PHYSICAL_ONLY=2,UNLIMITED_VIRTUALIZATION=3,ONE_TWO=2,INSTANCE=2,INHERITED_VIRTUALIZATION=1)");
+        opts.addOption("n", "pinned-matches", true, "number of pinned matches (Default: 10)");
+        opts.addOption("r", "seed", true, "random seed (Default: 0)");
+
+        InputGenerator generator = new InputGenerator();
+        CommandLine cmd;
+        try {
+            cmd = new BasicParser().parse(opts, args);
+            if (cmd.hasOption('h')) {
+                new HelpFormatter().printHelp("InputGenerator OPTIONS", opts);
+                return;
+            }
+            if (cmd.hasOption('s')) {
+                generator.systems(Integer.parseInt(cmd.getOptionValue('s')));
+            }
+            if (cmd.hasOption('g')) {
+                generator.guestsPerHost(Integer.parseInt(cmd.getOptionValue('g')));
+            }
+            if (cmd.hasOption('f')) {
+                generator.virtualizedFraction(Double.parseDouble(cmd.getOptionValue('f')));
+            }
+            if (cmd.hasOption('v')) {
+                generator.virtualizationGroups(Integer.parseInt(cmd.getOptionValue('v')));
+            }
+            if (cmd.hasOption('p')) {
+                generator.productFamilies(Integer.parseInt(cmd.getOptionValue('p')));
+            }
+            if (cmd.hasOption('e')) {
+                generator.extensionsPerFamily(Integer.parseInt(cmd.getOptionValue('e')));
+            }
+            if (cmd.hasOption('u')) {
+                generator.subscriptions(Integer.parseInt(cmd.getOptionValue('u')));
+            }
+            if (cmd.hasOption('w')) {
+                generator.policyWeights(parsePolicyWeights(cmd.getOptionValue('w')));
+            }
+            if (cmd.hasOption('n')) {
+                generator.pinnedMatches(Integer.parseInt(cmd.getOptionValue('n')));
+            }
+            if (cmd.hasOption('r')) {
+                generator.seed(Long.parseLong(cmd.getOptionValue('r')));
+            }
+        }
+        catch (ParseException | IllegalArgumentException e) {
+            System.err.println("Failed to parse command line properties: " + e);
+            new HelpFormatter().printHelp("InputGenerator OPTIONS", opts);
+            System.exit(1);
+            return;
+        }
+
+        String json = new JsonIO().toJson(generator.generate());
+        if (cmd.hasOption('o')) {
+            Files.writeString(Path.of(cmd.getOptionValue('o')), json, StandardCharsets.UTF_8);
+        }
+        else {
+            System.out.println(json);
+        }
+    }
+
+    private static Map<Policy, Integer> parsePolicyWeights(String value) {
+        return List.of(value.split(",")).stream()
+            .map(s -> s.split("="))
+            .peek(a -> {
+                if (a.length != 2) {
+                    throw new IllegalArgumentException("Invalid policy weight: " + String.join("=", a));
+                }
+            })
+            .collect(Collectors.toMap(a -> Policy.valueOf(a[0].trim()), a -> Integer.valueOf(a[1].trim())));
+    }
+}
@@ -0,0 +1,121 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.KieSession;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@link KieBaseCache}.
+ */
+class KieBaseCacheTest {
+
+    private static final String SCORE_DRL = "com/suse/matcher/rules/optaplanner/Scores.drl";
+
+    @AfterEach
+    void clearCacheDirectory() {
+        System.clearProperty(KieBaseCache.CACHE_DIR_PROPERTY);
+    }
+
+    /**
+     * Tests that rules are compiled once, then loaded from disk.
+     */
+    @Test
+    void testCompiledOnce(@TempDir Path directory) throws IOException {
+        System.setProperty(KieBaseCache.CACHE_DIR_PROPERTY, directory.toString());
+        AtomicInteger compilations = new AtomicInteger();
+
+        KieBase compiled = KieBaseCache.get("scores", List.of(SCORE_DRL), () -> {
+            compilations.incrementAndGet();
+            return OptaPlanner.getScoreKieBase();
+        });
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count(), "Rule base or digest not stored");
+        }
+
+        KieBase loaded = KieBaseCache.get("scores", List.of(SCORE_DRL), () -> {
+            compilations.incrementAndGet();
+            return OptaPlanner.getScoreKieBase();
+        });
+        assertEquals(1, compilations.get(), "Rule base compiled again");
+
+        // the loaded rule base has the same rules and works
+        assertEquals(compiled.getKiePackage("com.suse.matcher.rules.optaplanner").getRules().size(),
+                loaded.getKiePackage("com.suse.matcher.rules.optaplanner").getRules().size());
+        KieSession session = loaded.newKieSession();
+        assertNotNull(session);
+        session.dispose();
+    }
+
+    /**
+     * Tests that files not matching their digest are not deserialized.
+     */
+    @Test
+    void testCorruptFile(@TempDir Path directory) throws IOException {
+        System.setProperty(KieBaseCache.CACHE_DIR_PROPERTY, directory.toString());
+        KieBaseCache.get("scores", List.of(SCORE_DRL), OptaPlanner::getScoreKieBase);
+        try (Stream<Path> files = Files.list(directory)) {
+            Path file = files.filter(f -> f.toString().endsWith(".bin")).findFirst().orElseThrow();
+            // payload changed after its digest was computed
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 1]++;
+            Files.write(file, bytes);
+        }
+
+        AtomicInteger compilations = new AtomicInteger();
+        KieBase result = KieBaseCache.get("scores", List.of(SCORE_DRL), () -> {
+            compilations.incrementAndGet();
+            return OptaPlanner.getScoreKieBase();
+        });
+        assertNotNull(result);
+        assertEquals(1, compilations.get(), "Rule base not compiled again");
+    }
+
+    /**
+     * Tests that directories other users can write to are not used.
+     */
+    @Test
+    void testSharedDirectory(@TempDir Path directory) throws IOException {
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxr-x"));
+        System.setProperty(KieBaseCache.CACHE_DIR_PROPERTY, directory.toString());
+        AtomicInteger compilations = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            KieBaseCache.get("scores", List.of(SCORE_DRL), () -> {
+                compilations.incrementAndGet();
+                return OptaPlanner.getScoreKieBase();
+            });
+        }
+        assertEquals(2, compilations.get());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count(), "Rule base stored");
+        }
+    }
+
+    /**
+     * Tests that caching can be disabled.
+     */
+    @Test
+    void testDisabled() {
+        System.setProperty(KieBaseCache.CACHE_DIR_PROPERTY, "");
+        AtomicInteger compilations = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            KieBaseCache.get("scores", List.of(SCORE_DRL), () -> {
+                compilations.incrementAndGet();
+                return OptaPlanner.getScoreKieBase();
+            });
+        }
+        assertEquals(2, compilations.get());
+    }
+}
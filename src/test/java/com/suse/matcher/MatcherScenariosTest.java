@@ -2,10 +2,12 @@ package com.suse.matcher;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import com.suse.matcher.OptaPlanner.ScoreCalculator;
 import com.suse.matcher.json.JsonInput;
 import com.suse.matcher.json.JsonOutput;
 import com.suse.matcher.solver.Assignment;
@@ -15,11 +17,12 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -35,6 +38,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -56,6 +60,12 @@ class MatcherScenariosTest {
     // Utility to convert from/to JSON
     private static final JsonIO JSON_IO = new JsonIO();
 
+    // Scenarios that variants of matching are tested on
+    private static final List<Integer> REPRESENTATIVE_SCENARIOS = List.of(16, 17, 22, 32, 38, 39);
+
+    // Scenarios split into several independent components
+    private static final List<Integer> DECOMPOSED_SCENARIOS = List.of(16, 17, 32, 39);
+
     @BeforeAll
     static void initLoggerContext() {
         loggerContext = Log4J.initialize(Optional.empty(), Optional.empty());
@@ -68,11 +78,6 @@ class MatcherScenariosTest {
         }
     }
 
-    @BeforeEach
-    void init() {
-        Drools.resetIdMap();
-    }
-
     /**
      * Tests against scenario data.
      */
@@ -132,6 +137,133 @@ class MatcherScenariosTest {
         });
     }
 
+    /**
+     * Tests that matching again unchanged scenario data reuses the previous matches.
+     */
+    @DisplayName("Run test scenarios reusing previous matches")
+    @ParameterizedTest(name = "{1}")
+    @MethodSource("listRepresentativeScenarios")
+    void testScenarioWithPreviousRun(int scenarioNumber, String description) {
+        LOGGER.info("Executing {} with previous run", description);
+        Matcher matcher = new Matcher(true);
+
+        JsonInput input = getJsonInput(scenarioNumber);
+        JsonOutput expectedOutput = getJsonOutput(scenarioNumber);
+        PreviousRun previousRun = new PreviousRun(input, expectedOutput, input);
+        JsonOutput actualOutput = FactConverter.convertToOutput(matcher.match(input, previousRun, null));
+
+        assertAll("Check JSON output",
+            () -> assertJsonEquals(expectedOutput.getMatches(), actualOutput.getMatches(), "Matches JSON does not match"),
+            () -> assertJsonEquals(expectedOutput.getMessages(), actualOutput.getMessages(), "Messages JSON does not match")
+        );
+    }
+
+    /**
+     * Tests that solving scenario data starting from part of the expected matches still finds an optimal solution.
+     * Every other expected match is dropped from the initial solution, so that the construction heuristic has to
+     * complete it.
+     */
+    @DisplayName("Run test scenarios starting from a partial initial solution")
+    @ParameterizedTest(name = "{1}")
+    @MethodSource("listRepresentativeScenarios")
+    void testScenarioWithInitialSolution(int scenarioNumber, String description) {
+        LOGGER.info("Executing {} with initial solution", description);
+        Matcher matcher = new Matcher(true);
+
+        JsonInput input = getJsonInput(scenarioNumber);
+        JsonOutput expectedOutput = getJsonOutput(scenarioNumber);
+
+        // the score of the expected output, as restored from a previous run without solving
+        HardSoftScore expectedScore = matcher.match(input, new PreviousRun(input, expectedOutput, input), null)
+            .getScore();
+
+        JsonOutput partialOutput = getJsonOutput(scenarioNumber);
+        partialOutput.setMatches(IntStream.range(0, partialOutput.getMatches().size())
+            .filter(i -> i % 2 == 0)
+            .mapToObj(partialOutput.getMatches()::get)
+            .collect(Collectors.toList()));
+        Assignment actual = matcher.match(getJsonInput(scenarioNumber), null, new InitialSolution(partialOutput));
+
+        assertTrue(actual.getScore().compareTo(expectedScore) >= 0,
+                "Score " + actual.getScore() + " is worse than expected " + expectedScore);
+    }
+
+    /**
+     * Tests that an initial solution exceeding subscription quantities is not used, so that results are the same as
+     * without it.
+     */
+    @Test
+    void testInfeasibleInitialSolution() {
+        int scenarioNumber = 16;
+        JsonInput input = getJsonInput(scenarioNumber);
+        input.getSubscriptions().stream()
+            .filter(s -> s.getQuantity() != null && s.getQuantity() > 1)
+            .forEach(s -> s.setQuantity(s.getQuantity() / 2));
+
+        Matcher matcher = new Matcher(true);
+        Assignment expected = matcher.match(input, null, null);
+        InitialSolution initialSolution = new InitialSolution(getJsonOutput(scenarioNumber));
+        Assignment actual = matcher.match(input, null, initialSolution);
+
+        // previous matches are not applied to some components, which start unassigned
+        List<Assignment> unseeded = Decomposer.split(expected).stream()
+            .filter(c -> !initialSolution.apply(c))
+            .collect(Collectors.toList());
+        assertFalse(unseeded.isEmpty(), "Initial solution applied");
+        unseeded.forEach(c -> assertTrue(c.getMatches().stream().allMatch(m -> m.confirmed == null)));
+
+        assertEquals(expected.getScore(), actual.getScore());
+        assertJsonEquals(FactConverter.convertToOutput(expected).getMatches(),
+                FactConverter.convertToOutput(actual).getMatches(), "Matches JSON does not match");
+    }
+
+    /**
+     * Tests that solving independent components of scenario data separately scores at least as well as solving the
+     * whole problem at once.
+     */
+    @DisplayName("Run test scenarios with and without decomposition")
+    @ParameterizedTest(name = "{1}")
+    @MethodSource("listDecomposedScenarios")
+    void testScenarioDecomposition(int scenarioNumber, String description) {
+        LOGGER.info("Executing {} with and without decomposition", description);
+        JsonInput input = getJsonInput(scenarioNumber);
+
+        Assignment decomposed = new Matcher(1, new SolverConfigBuilder().testing(true)).match(input);
+        assertTrue(decomposed.getMetrics().toMap().get("counts").get("components") > 1,
+                "Scenario not split into components");
+
+        HardSoftScore decomposedScore = decomposed.getScore();
+        HardSoftScore wholeScore = new Matcher(1, new SolverConfigBuilder().testing(true).decomposition(false))
+            .match(input).getScore();
+        assertTrue(decomposedScore.compareTo(wholeScore) >= 0,
+                "Score " + decomposedScore + " is worse than " + wholeScore + " of the whole problem");
+    }
+
+    /**
+     * Tests that the incremental score calculator and score rules in Scores.drl lead to the same results. Tests run
+     * outside of testing mode, where scores are not asserted against Scores.drl after every move.
+     */
+    @DisplayName("Run test scenarios with both score calculators")
+    @ParameterizedTest(name = "{1}")
+    @MethodSource("listRepresentativeScenarios")
+    void testScenarioScoreCalculators(int scenarioNumber, String description) {
+        LOGGER.info("Executing {} with both score calculators", description);
+        JsonInput input = getJsonInput(scenarioNumber);
+
+        Assignment incremental = new Matcher(1, new SolverConfigBuilder().scoreCalculator(ScoreCalculator.INCREMENTAL))
+            .match(input);
+        Assignment drl = new Matcher(1, new SolverConfigBuilder().scoreCalculator(ScoreCalculator.DRL))
+            .match(input);
+        JsonOutput incrementalOutput = FactConverter.convertToOutput(incremental);
+        JsonOutput drlOutput = FactConverter.convertToOutput(drl);
+
+        assertAll("Check score calculators",
+            () -> assertEquals(incremental.getScore(), drl.getScore(), "Scores do not match"),
+            () -> assertJsonEquals(incrementalOutput.getMatches(), drlOutput.getMatches(), "Matches JSON does not match"),
+            () -> assertJsonEquals(incrementalOutput.getMessages(), drlOutput.getMessages(), "Messages JSON does not match")
+        );
+    }
+
     /**
      * Loads test data, instantiating multiple {@link MatcherScenariosTest} objects
      * with files loaded from resources/subscriptions* JSON files.
@@ -143,6 +275,28 @@ class MatcherScenariosTest {
             .map(scenarioNumber -> Arguments.of(scenarioNumber, getScenarioTitle(scenarioNumber)));
     }
 
+    /**
+     * Lists scenarios that variants of matching (eg. with a previous run) are tested on, as testing them on all
+     * scenarios takes long. These cover 1-2 subscriptions, virtualization, hard bundles and several components, and
+     * all have matches.
+     *
+     * @return a collection of parameters to the constructor of this class
+     */
+    static Stream<Arguments> listRepresentativeScenarios() {
+        return REPRESENTATIVE_SCENARIOS.stream()
+            .map(scenarioNumber -> Arguments.of(scenarioNumber, getScenarioTitle(scenarioNumber)));
+    }
+
+    /**
+     * Lists scenarios that are split into several independent components.
+     *
+     * @return a collection of parameters to the constructor of this class
+     */
+    static Stream<Arguments> listDecomposedScenarios() {
+        return DECOMPOSED_SCENARIOS.stream()
+            .map(scenarioNumber -> Arguments.of(scenarioNumber, getScenarioTitle(scenarioNumber)));
+    }
+
     /**
      * Checks if the given scenario exists
      *
@@ -161,7 +315,7 @@ class MatcherScenariosTest {
      * @param scenarioNumber the scenario number
      * @return the provided JSON input for this scenario
      */
-    private static JsonInput getJsonInput(int scenarioNumber) {
+    static JsonInput getJsonInput(int scenarioNumber) {
         return JSON_IO.loadInput(getContentAsString(scenarioNumber, "input.json"));
     }
 
@@ -170,7 +324,7 @@ class MatcherScenariosTest {
      * @param scenarioNumber the scenario number
      * @return the expected JSON output for this scenario
      */
-    private static JsonOutput getJsonOutput(int scenarioNumber) {
+    static JsonOutput getJsonOutput(int scenarioNumber) {
         return JSON_IO.loadOutput(getContentAsString(scenarioNumber, "output.json"));
     }
 
@@ -217,7 +371,7 @@ class MatcherScenariosTest {
      * @param fileName the filename
      * @return the content as string
      */
-    private static String getContentAsString(int scenarioNumber, String fileName) {
+    static String getContentAsString(int scenarioNumber, String fileName) {
         URL resource = MatcherScenariosTest.class.getResource(getResourcePath(scenarioNumber, fileName));
         if (resource == null) {
             throw new IllegalStateException("Unable to find resource " + fileName + " for scenario " + scenarioNumber);
@@ -0,0 +1,113 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.suse.matcher.json.JsonOutput;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * Tests {@link MatcherServer} on a free loopback port.
+ */
+class MatcherServerTest {
+
+    /** Utility to convert from/to JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private MatcherServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MatcherServer(0, 2, 1, new SolverConfigBuilder().testing(true), Optional.empty());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Tests the health endpoint.
+     */
+    @Test
+    void testHealth() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get("/health"), BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("ok", JsonParser.parseString(response.body()).getAsJsonObject().get("status").getAsString());
+    }
+
+    /**
+     * Tests that matches served over HTTP are the same as the expected output of a scenario, and are counted in
+     * timings.
+     */
+    @Test
+    void testMatch() throws IOException, InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<String> response = client.send(post("/match", readScenario(1, "input.json")),
+                    BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            JsonObject body = JsonParser.parseString(response.body()).getAsJsonObject();
+            JsonOutput expected = JSON_IO.loadOutput(readScenario(1, "output.json"));
+            JsonOutput actual = JSON_IO.loadOutput(body.get("output").toString());
+            assertEquals(JSON_IO.toJson(expected.getMatches()), JSON_IO.toJson(actual.getMatches()));
+            assertTrue(body.getAsJsonObject("reports").has("subscription_report.csv"));
+        }
+
+        HttpResponse<String> response = client.send(get("/timings"), BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        JsonObject timings = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(2, timings.get("matches").getAsLong());
+        assertEquals(0, timings.get("errors").getAsLong());
+    }
+
+    /**
+     * Tests that invalid requests are rejected.
+     */
+    @Test
+    void testErrors() throws IOException, InterruptedException {
+        assertEquals(405, client.send(get("/match"), BodyHandlers.ofString()).statusCode());
+        assertEquals(400, client.send(post("/match", "{\"systems\": ["), BodyHandlers.ofString()).statusCode());
+        assertEquals(405, client.send(post("/health", "{}"), BodyHandlers.ofString()).statusCode());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(getUri(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(getUri(path)).POST(BodyPublishers.ofString(body)).build();
+    }
+
+    private URI getUri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static String readScenario(int scenarioNumber, String file) throws IOException {
+        try (InputStream stream = MatcherServerTest.class.getResourceAsStream("scenarios/" + scenarioNumber + "/" +
+                file)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
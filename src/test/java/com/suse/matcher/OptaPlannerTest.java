@@ -0,0 +1,123 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.suse.matcher.SolverConfigBuilder.Profile;
+import com.suse.matcher.json.JsonInput;
+import com.suse.matcher.solver.Assignment;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Tests solving of independent components by {@link OptaPlanner}, on a generated input with several of them.
+ */
+class OptaPlannerTest {
+
+    /** Time that solving can take past the time limit: the construction heuristic is never stopped. */
+    private static final long TIME_LIMIT_TOLERANCE_MS = 2_000L;
+
+    /** Utility to convert to JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    private static JsonInput input;
+
+    @BeforeAll
+    static void generateInput() {
+        input = new InputGenerator()
+            .systems(200)
+            .virtualizedFraction(0)
+            .productFamilies(5)
+            .subscriptions(20)
+            .pinnedMatches(0)
+            .generate();
+    }
+
+    /**
+     * Tests that solving components in parallel gives the same results as solving them one after the other.
+     */
+    @Test
+    void testThreads() {
+        Assignment sequential = new Matcher(1, new SolverConfigBuilder()).match(input);
+        Assignment parallel = new Matcher(4, new SolverConfigBuilder()).match(input);
+
+        assertTrue(sequential.getMetrics().toMap().get("counts").get("components") > 1,
+                "Input not split into components");
+        assertEquals(sequential.getScore(), parallel.getScore());
+        assertEquals(JSON_IO.toJson(FactConverter.convertToOutput(sequential)),
+                JSON_IO.toJson(FactConverter.convertToOutput(parallel)));
+    }
+
+    /**
+     * Tests that the time limit bounds the optimization of all components together, when solved one after the other.
+     */
+    @Test
+    void testTimeLimit() {
+        Duration timeLimit = Duration.ofSeconds(1);
+        Assignment result = new Matcher(1, new SolverConfigBuilder().profile(Profile.THOROUGH).timeLimit(timeLimit))
+            .match(input);
+
+        Map<String, Map<String, Long>> metrics = result.getMetrics().toMap();
+        assertTrue(metrics.get("counts").get("components") > 1, "Input not split into components");
+        assertTrue(metrics.get("counts").getOrDefault("components_limited", 0L) > 0, "Time limit not reached");
+        long optimization = metrics.get("timings_ms").get("optimization");
+        assertTrue(optimization <= timeLimit.toMillis() + TIME_LIMIT_TOLERANCE_MS,
+                "Optimization took " + optimization + "ms");
+    }
+
+    /**
+     * Tests that the best score limit stops solving early, and that results do not depend on the number of threads.
+     */
+    @Test
+    void testBestScoreLimit() {
+        Assignment unlimited = new Matcher(1, new SolverConfigBuilder().profile(Profile.FAST)).match(input);
+        String limit = unlimited.getScore().toString();
+
+        Assignment limited = new Matcher(1, new SolverConfigBuilder().profile(Profile.FAST).bestScoreLimit(limit))
+            .match(input);
+        Map<String, Long> counts = limited.getMetrics().toMap().get("counts");
+        assertTrue(counts.getOrDefault("components_limited", 0L) > 0, "Best score limit not reached");
+        assertTrue(counts.get("local_search_steps") <
+                unlimited.getMetrics().toMap().get("counts").get("local_search_steps"), "Solving not stopped early");
+
+        Assignment parallel = new Matcher(4, new SolverConfigBuilder().profile(Profile.FAST).bestScoreLimit(limit))
+            .match(input);
+        assertEquals(limited.getScore(), parallel.getScore());
+        assertEquals(counts.get("local_search_steps"),
+                parallel.getMetrics().toMap().get("counts").get("local_search_steps"));
+
+        // an unreachable limit does not change search
+        Assignment unreachable = new Matcher(1, new SolverConfigBuilder().profile(Profile.FAST)
+            .bestScoreLimit("1hard/0soft"))
+            .match(input);
+        assertEquals(unlimited.getMetrics().toMap().get("counts").get("local_search_steps"),
+                unreachable.getMetrics().toMap().get("counts").get("local_search_steps"));
+    }
+
+    /**
+     * Tests that every component is searched for exactly the set number of steps, even if its score is optimal.
+     */
+    @Test
+    void testStepCountLimit() {
+        JsonInput smallInput = new InputGenerator()
+            .systems(50)
+            .virtualizedFraction(0)
+            .productFamilies(5)
+            .subscriptions(10)
+            .pinnedMatches(0)
+            .generate();
+        Assignment unlimited = new Matcher(1, new SolverConfigBuilder()).match(smallInput);
+        assertTrue(unlimited.getMetrics().toMap().get("counts").getOrDefault("components_optimal", 0L) > 0,
+                "No component with an optimal score");
+
+        Assignment result = new Matcher(1, new SolverConfigBuilder().stepCountLimit(30)).match(smallInput);
+        Map<String, Long> counts = result.getMetrics().toMap().get("counts");
+        assertEquals(30 * counts.get("components"), counts.get("local_search_steps"));
+        assertFalse(counts.containsKey("components_optimal"), "Solving stopped early");
+    }
+}
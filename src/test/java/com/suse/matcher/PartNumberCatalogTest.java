@@ -0,0 +1,99 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.suse.matcher.facts.Subscription;
+import com.suse.matcher.facts.Subscription.Policy;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link PartNumberCatalog}.
+ */
+class PartNumberCatalogTest {
+
+    /**
+     * Tests that all part numbers are loaded.
+     */
+    @Test
+    void testEntries() {
+        assertEquals(1459, PartNumberCatalog.getEntries().size());
+        assertFalse(PartNumberCatalog.lookup(null).isPresent());
+        assertFalse(PartNumberCatalog.lookup("unknown").isPresent());
+    }
+
+    /**
+     * Tests attributes of a physical subscription.
+     */
+    @Test
+    void testPhysical() {
+        Subscription subscription = newSubscription("051-003964", 3);
+        PartNumberCatalog.fillIn(subscription);
+
+        assertEquals(Policy.PHYSICAL_ONLY, subscription.policy);
+        assertEquals("basic", subscription.supportLevel);
+        assertEquals(4, subscription.cpus);
+        assertFalse(subscription.stackable);
+        assertFalse(subscription.singleSubscriptionHardBundle);
+        assertEquals(3, subscription.quantity);
+    }
+
+    /**
+     * Tests that quantities are multiplied.
+     */
+    @Test
+    void testQuantityMultiplier() {
+        Subscription subscription = newSubscription("662644477515", 3);
+        PartNumberCatalog.fillIn(subscription);
+
+        assertEquals(12, subscription.quantity);
+        assertTrue(subscription.stackable);
+    }
+
+    /**
+     * Tests unlimited quantities.
+     */
+    @Test
+    void testUnlimitedQuantity() {
+        Subscription subscription = newSubscription("874-007224", 1);
+        PartNumberCatalog.fillIn(subscription);
+
+        assertEquals(Policy.INSTANCE, subscription.policy);
+        assertEquals(Integer.MAX_VALUE, subscription.quantity);
+        assertNull(subscription.supportLevel);
+        assertNull(subscription.cpus);
+    }
+
+    /**
+     * Tests single subscription hard bundles.
+     */
+    @Test
+    void testSingleSubscriptionHardBundle() {
+        Subscription subscription = newSubscription("662644476827", 1);
+        PartNumberCatalog.fillIn(subscription);
+
+        assertTrue(subscription.singleSubscriptionHardBundle);
+        assertEquals("priority", subscription.supportLevel);
+    }
+
+    /**
+     * Tests that subscriptions with unknown part numbers are unchanged.
+     */
+    @Test
+    void testUnknown() {
+        Subscription subscription = newSubscription("unknown", 5);
+        PartNumberCatalog.fillIn(subscription);
+
+        assertNull(subscription.policy);
+        assertNull(subscription.cpus);
+        assertNull(subscription.stackable);
+        assertEquals(5, subscription.quantity);
+    }
+
+    private static Subscription newSubscription(String partNumber, int quantity) {
+        return new Subscription(1L, partNumber, "Subscription", quantity, null, null, null);
+    }
+}
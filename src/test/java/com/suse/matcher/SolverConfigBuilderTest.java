@@ -0,0 +1,47 @@
+package com.suse.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.suse.matcher.SolverConfigBuilder.Profile;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * Tests {@link SolverConfigBuilder}.
+ */
+class SolverConfigBuilderTest {
+
+    /**
+     * Tests that frozen builders cannot change and reuse one solver factory, while the original can still change.
+     */
+    @Test
+    void testFreeze() {
+        SolverConfigBuilder builder = new SolverConfigBuilder().profile(Profile.FAST);
+        SolverConfigBuilder frozen = builder.freeze();
+
+        assertThrows(IllegalStateException.class, () -> frozen.profile(Profile.THOROUGH));
+        assertThrows(IllegalStateException.class, () -> frozen.timeLimit(Duration.ofSeconds(1)));
+        assertSame(frozen.getFactory(), frozen.getFactory());
+
+        builder.timeLimit(Duration.ofSeconds(1));
+        assertTrue(frozen.getTimeLimit().isEmpty());
+        assertNotSame(builder.getFactory(), builder.getFactory());
+    }
+
+    /**
+     * Tests that only time limits make results depend on machine speed.
+     */
+    @Test
+    void testReproducible() {
+        assertTrue(new SolverConfigBuilder().profile(Profile.THOROUGH).bestScoreLimit("0hard/0soft").isReproducible());
+        assertFalse(new SolverConfigBuilder().timeLimit(Duration.ofSeconds(1)).isReproducible());
+        assertFalse(new SolverConfigBuilder().unimprovedTimeLimit(Duration.ofSeconds(1)).isReproducible());
+        assertTrue(new SolverConfigBuilder().timeLimit(Duration.ofSeconds(1)).stepCountLimit(10).isReproducible());
+    }
+}
@@ -0,0 +1,102 @@
+package com.suse.matcher.solver;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.suse.matcher.Decomposer;
+import com.suse.matcher.JsonIO;
+import com.suse.matcher.Matcher;
+import com.suse.matcher.SolverConfigBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardsoft.HardSoftScore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests {@link AssignmentScoreCalculator#getUpperBound(Assignment)} against solved scenarios.
+ */
+class AssignmentScoreCalculatorTest {
+
+    /** Utility to convert from JSON. */
+    private static final JsonIO JSON_IO = new JsonIO();
+
+    /**
+     * Tests that no component of a solved scenario scores more than its upper bound, and that the bound is reached
+     * by some of them.
+     */
+    @Test
+    void testUpperBound() throws IOException {
+        int optimalComponents = 0;
+        for (Assignment component : solveScenarios()) {
+            HardSoftScore score = calculateScore(component);
+            HardSoftScore upperBound = AssignmentScoreCalculator.getUpperBound(component);
+
+            assertTrue(score.compareTo(upperBound) <= 0, "Score " + score + " above upper bound " + upperBound);
+            if (score.equals(upperBound)) {
+                optimalComponents++;
+            }
+        }
+        assertTrue(optimalComponents > 0, "Upper bound never reached");
+    }
+
+    /**
+     * Tests that the soft score of solutions that exceed subscription quantities is not above the upper bound
+     * either. Every component has as many Matches confirmed as conflicts allow, regardless of quantities.
+     */
+    @Test
+    void testUpperBoundWithHardViolations() throws IOException {
+        int violatingComponents = 0;
+        for (Assignment component : solveScenarios()) {
+            component.getMatches().forEach(m -> m.confirmed = false);
+            for (Match match : component.getMatches()) {
+                match.confirmed = !component.isConflictingMatchConfirmed(match);
+            }
+
+            HardSoftScore score = calculateScore(component);
+            HardSoftScore upperBound = AssignmentScoreCalculator.getUpperBound(component);
+
+            assertTrue(score.getSoftScore() <= upperBound.getSoftScore(),
+                    "Score " + score + " above upper bound " + upperBound);
+            if (score.getHardScore() < 0) {
+                violatingComponents++;
+            }
+        }
+        assertTrue(violatingComponents > 0, "No component violates hard constraints");
+    }
+
+    /**
+     * Solves all scenarios, outside of testing mode which is faster on big ones.
+     *
+     * @return the solved components of all scenarios
+     */
+    private static List<Assignment> solveScenarios() throws IOException {
+        List<Assignment> result = new ArrayList<>();
+        for (int scenarioNumber = 1; getInputUrl(scenarioNumber) != null; scenarioNumber++) {
+            String input;
+            try (InputStream stream = getInputUrl(scenarioNumber).openStream()) {
+                input = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Assignment solved = new Matcher(1, new SolverConfigBuilder()).match(JSON_IO.loadInput(input));
+            if (!solved.getMatches().isEmpty()) {
+                result.addAll(Decomposer.split(solved));
+            }
+        }
+        return result;
+    }
+
+    private static URL getInputUrl(int scenarioNumber) {
+        return AssignmentScoreCalculatorTest.class.getResource(
+                "/com/suse/matcher/scenarios/" + scenarioNumber + "/input.json");
+    }
+
+    private static HardSoftScore calculateScore(Assignment component) {
+        AssignmentScoreCalculator calculator = new AssignmentScoreCalculator();
+        calculator.resetWorkingSolution(component);
+        return calculator.calculateScore();
+    }
+}
@@ -0,0 +1,74 @@
+package com.suse.matcher.solver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.suse.matcher.facts.Product;
+import com.suse.matcher.facts.System;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests {@link FactStore}.
+ */
+class FactStoreTest {
+
+    /**
+     * Tests that facts are returned by type, including subtypes, in insertion order.
+     */
+    @Test
+    void testGet() {
+        System system1 = newSystem(1L);
+        Product product = newProduct(2L);
+        System system2 = newSystem(3L);
+        FactStore store = new FactStore(List.of(system1, product, system2));
+
+        assertEquals(List.of(system1, system2), store.get(System.class));
+        assertEquals(List.of(product), store.get(Product.class));
+        assertEquals(List.of(system1, product, system2), store.get(Object.class));
+        assertEquals(List.of(), store.get(String.class));
+
+        // computed once
+        assertSame(store.get(Object.class), store.get(Object.class));
+    }
+
+    /**
+     * Tests that facts are indexed by id, keeping the first one of equal ids.
+     */
+    @Test
+    void testGetIndex() {
+        System system1 = newSystem(1L);
+        System system2 = newSystem(2L);
+        FactStore store = new FactStore(List.of(system1, system2, newSystem(1L)));
+
+        assertEquals(Map.of(1L, system1, 2L, system2), store.getIndex(System.class, s -> s.id));
+        assertSame(store.getIndex(System.class, s -> s.id), store.getIndex(System.class, s -> s.id));
+    }
+
+    /**
+     * Tests that added facts are returned by later requests.
+     */
+    @Test
+    void testAdd() {
+        System system1 = newSystem(1L);
+        FactStore store = new FactStore(List.of(system1));
+        assertEquals(List.of(system1), store.get(System.class));
+        assertEquals(Map.of(1L, system1), store.getIndex(System.class, s -> s.id));
+
+        System system2 = newSystem(2L);
+        store.add(system2);
+        assertEquals(List.of(system1, system2), store.get(System.class));
+        assertEquals(Map.of(1L, system1, 2L, system2), store.getIndex(System.class, s -> s.id));
+    }
+
+    private static System newSystem(Long id) {
+        return new System(id, "system" + id, 1, true);
+    }
+
+    private static Product newProduct(Long id) {
+        return new Product(id, "product" + id, null, false, false);
+    }
+}